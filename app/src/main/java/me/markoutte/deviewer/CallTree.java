@@ -16,8 +16,9 @@
 
 package me.markoutte.deviewer;
 
+import me.markoutte.deviewer.jfr.FrameTable;
 import me.markoutte.deviewer.jfr.StackFrame;
-import me.markoutte.deviewer.utils.Trie;
+import me.markoutte.deviewer.utils.FrozenTree;
 
 import javax.swing.*;
 import javax.swing.event.TreeModelEvent;
@@ -27,70 +28,28 @@ import javax.swing.tree.TreeModel;
 import javax.swing.tree.TreePath;
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
 
 public class CallTree extends JTree {
 
-    public CallTree(StackFrame root, Trie<StackFrame, StackFrame> trie) {
+    private final Model model;
+
+    public CallTree(FrameTable frames, FrozenTree tree) {
+        this.model = new Model(tree);
         setLargeModel(true);
         setShowsRootHandles(true);
 //        jTree.setRootVisible(true);
-        setModel(new TreeModel() {
-
-            private final List<TreeModelListener> listeners = new ArrayList<>();
-
-            @Override
-            public Object getRoot() {
-                return trie.getImpl(Collections.singleton(root));
-            }
-
-            @Override
-            public Object getChild(Object parent, int index) {
-                return trie.children((Trie.Node<StackFrame>) parent).get(index);
-            }
-
-            @Override
-            public int getChildCount(Object parent) {
-                return trie.children((Trie.Node<StackFrame>) parent).size();
-            }
-
-            @Override
-            public boolean isLeaf(Object node) {
-                return getChildCount(node) == 0;
-            }
-
-            @Override
-            public void valueForPathChanged(TreePath path, Object newValue) {
-                for (TreeModelListener listener : listeners) {
-                    listener.treeStructureChanged(new TreeModelEvent(newValue, path));
-                }
-            }
-
-            @Override
-            public int getIndexOfChild(Object parent, Object child) {
-                return trie.children((Trie.Node<StackFrame>) parent).indexOf(child);
-            }
-
-            @Override
-            public void addTreeModelListener(TreeModelListener l) {
-                listeners.add(l);
-            }
-
-            @Override
-            public void removeTreeModelListener(TreeModelListener l) {
-                listeners.remove(l);
-            }
-        });
+        setModel(model);
         setCellRenderer(new DefaultTreeCellRenderer() {
             @Override
             public Component getTreeCellRendererComponent(JTree tree1, Object value, boolean sel, boolean expanded, boolean leaf, int row, boolean hasFocus) {
                 Component component = super.getTreeCellRendererComponent(tree1, value, sel, expanded, leaf, row, hasFocus);
                 if (component instanceof JLabel label) {
-                    Trie.Node<StackFrame> frameNode = (Trie.Node<StackFrame>) value;
-                    StackFrame frame = frameNode.getData();
+                    int node = (Integer) value;
+                    StackFrame frame = frames.get(model.tree.frame(node));
                     label.setText("<html><body><b>%d</b> %s <span color=gray>%s</span>".formatted(
-                            frameNode.getHit(),
+                            model.tree.total(node),
                             "%s(%s)".formatted(
                                     frame.methodName(),
                                     String.join(",", frame.parameters())
@@ -103,4 +62,111 @@ public class CallTree extends JTree {
             }
         });
     }
+
+    /**
+     * Shows the new layout of the tree, keeping expanded nodes expanded.
+     */
+    public void update(FrozenTree tree) {
+        Enumeration<TreePath> expanded = getExpandedDescendants(new TreePath(model.getRoot()));
+        List<int[]> paths = new ArrayList<>();
+        if (expanded != null) {
+            while (expanded.hasMoreElements()) {
+                paths.add(frames(expanded.nextElement()));
+            }
+        }
+        model.tree = tree;
+        model.fireStructureChanged();
+        for (int[] path : paths) {
+            TreePath treePath = find(path);
+            if (treePath != null) {
+                expandPath(treePath);
+            }
+        }
+    }
+
+    // node indices change with every layout, so expanded nodes are remembered by their frames
+    private int[] frames(TreePath path) {
+        int[] frames = new int[path.getPathCount()];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = model.tree.frame((Integer) path.getPathComponent(i));
+        }
+        return frames;
+    }
+
+    private TreePath find(int[] frames) {
+        Object[] nodes = new Object[frames.length];
+        int node = FrozenTree.ROOT;
+        nodes[0] = node;
+        for (int i = 1; i < frames.length; i++) {
+            node = model.tree.find(node, frames[i]);
+            if (node == FrozenTree.NONE) {
+                return null;
+            }
+            nodes[i] = node;
+        }
+        return new TreePath(nodes);
+    }
+
+    // Nodes of the model are node indices of the tree
+    private static class Model implements TreeModel {
+
+        private FrozenTree tree;
+        private final List<TreeModelListener> listeners = new ArrayList<>();
+
+        Model(FrozenTree tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public Object getRoot() {
+            return FrozenTree.ROOT;
+        }
+
+        @Override
+        public Object getChild(Object parent, int index) {
+            return tree.child((Integer) parent, index);
+        }
+
+        @Override
+        public int getChildCount(Object parent) {
+            return tree.childCount((Integer) parent);
+        }
+
+        @Override
+        public boolean isLeaf(Object node) {
+            return tree.isLeaf((Integer) node);
+        }
+
+        @Override
+        public void valueForPathChanged(TreePath path, Object newValue) {
+            for (TreeModelListener listener : listeners) {
+                listener.treeStructureChanged(new TreeModelEvent(newValue, path));
+            }
+        }
+
+        @Override
+        public int getIndexOfChild(Object parent, Object child) {
+            if (parent instanceof Integer p && child instanceof Integer c) {
+                return tree.indexOfChild(p, c);
+            }
+            return -1;
+        }
+
+        @Override
+        public void addTreeModelListener(TreeModelListener l) {
+            listeners.add(l);
+        }
+
+        @Override
+        public void removeTreeModelListener(TreeModelListener l) {
+            listeners.remove(l);
+        }
+
+        void fireStructureChanged() {
+            TreeModelEvent event = new TreeModelEvent(this, new Object[]{getRoot()});
+            for (TreeModelListener listener : listeners) {
+                listener.treeStructureChanged(event);
+            }
+        }
+    }
 }
@@ -20,30 +20,65 @@ import com.intellij.ui.scroll.LatchingScroll;
 import com.intellij.util.animation.Animations;
 import com.intellij.util.animation.Easing;
 import com.intellij.util.animation.JBAnimator;
+import me.markoutte.deviewer.jfr.FrameTable;
 import me.markoutte.deviewer.jfr.StackFrame;
 import me.markoutte.deviewer.jfr.StackFrameType;
-import me.markoutte.deviewer.utils.Trie;
+import me.markoutte.deviewer.utils.FrozenTree;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.font.FontRenderContext;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Collections;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class IcicleGraphComponent extends JComponent {
 
-    private final List<Rectangle> rectangles = new ArrayList<>();
+    private final FrameTable frames;
+    private FrozenTree tree;
+    // rectangles of every depth go from left to right, so visible ones are found by a binary search;
+    // rows are replaced as a whole and never change, so tiles are rendered from them without locking
+    private List<Row> rows = List.of();
     private int maxDepth = 0;
     private double scale = 1.0;
     private final double FACTOR = 1.05;
-    private Point point = null;
+    // hovered rectangle or the first rectangle of a hovered aggregated block
+    private int hoveredDepth = -1;
+    private int hoveredIndex = -1;
+    // bounds of the hovered node, empty when nothing is hovered; reused so that hovering allocates nothing
+    private final java.awt.Rectangle hoveredBounds = new java.awt.Rectangle();
     private Rectangle hoveredRectangle = null;
+    private final TileRenderer tiles = new TileRenderer(this);
+    // caches below are shared by the Event Dispatch Thread and tile rendering
+    private final Object cacheLock = new Object();
+    // aggregated blocks of the rows at the width, runs of every row are found once when they are painted first
+    private List<Row> blocksRows;
+    private int blocksWidth;
+    private Blocks[] blocks;
+    // labels of frames measured with the font and rendering context below, indexed by frame id
+    private Label[] labels = new Label[0];
+    private Font labelFont;
+    private FontRenderContext labelContext;
     private JBAnimator animator = new JBAnimator();
 
-    public IcicleGraphComponent(StackFrame root, Trie<StackFrame, StackFrame> trie) {
-        traverse(trie, trie.getImpl(Collections.singleton(root)), 0.0, 1.0, 0);
+    public IcicleGraphComponent(FrameTable frames, FrozenTree tree) {
+        this.frames = frames;
+        this.tree = tree;
+        buildRows();
+    }
+
+    /**
+     * Rebuilds the graph for the new layout of the tree.
+     */
+    public void update(FrozenTree tree) {
+        this.tree = tree;
+        buildRows();
+        resetHover();
+        if (getParent() instanceof JViewport) {
+            resizeComponent(0, 0, 1.0);
+        }
     }
 
     @Override
@@ -101,12 +136,8 @@ public class IcicleGraphComponent extends JComponent {
         viewport.addMouseMotionListener(new MouseAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
-                Point position = viewport.getViewPosition();
-                point = new Point(
-                        position.x + e.getX(),
-                        position.y + e.getY()
-                );
-                repaint();
+                // the view is placed at the negated view position, reading it back avoids allocating a Point
+                hover(e.getX() - getX(), e.getY() - getY(), viewport);
             }
         });
         viewport.addMouseListener(new MouseAdapter() {
@@ -118,8 +149,7 @@ public class IcicleGraphComponent extends JComponent {
                     scale = 1 / (hoveredRectangle.end - hoveredRectangle.start);
                     int newWidth = (int) Math.round(rect.width * scale);
                     int newX = (int) Math.round(newWidth * hoveredRectangle.start);
-                    point = null;
-                    hoveredRectangle = null;
+                    resetHover();
                     animator.animate(Animations.animation(
                             new java.awt.Rectangle(rect.x, rect.y, oldWidth, maxDepth * 24),
                             new java.awt.Rectangle(newX, rect.y, newWidth, maxDepth * 24),
@@ -144,6 +174,7 @@ public class IcicleGraphComponent extends JComponent {
 
     private void resizeComponent(int mx, int my, double scale) {
         this.scale = Math.max(this.scale * scale, 1.0);
+        resetHover();
         JViewport viewport = (JViewport) getParent();
         java.awt.Rectangle viewRect = viewport.getViewRect();
         int nx = (int) Math.round(scale * (mx + viewRect.x) - mx);
@@ -158,58 +189,294 @@ public class IcicleGraphComponent extends JComponent {
         return super.getSize();
     }
 
-    private void traverse(Trie<StackFrame, StackFrame> trie, Trie.Node<StackFrame> node, double start, double end, int depth) {
+    private void buildRows() {
+        List<Row> layout = new ArrayList<>();
+        maxDepth = 0;
+        traverse(layout, FrozenTree.ROOT, 0.0, 1.0, 0);
+        layout.forEach(Row::trim);
+        rows = layout;
+    }
+
+    private void traverse(List<Row> rows, int node, double start, double end, int depth) {
         maxDepth = Math.max(depth, maxDepth);
-        rectangles.add(new Rectangle(start, end, depth, node.getData()));
-        List<Trie.Node<StackFrame>> children = trie.children(node);
+        if (depth == rows.size()) {
+            rows.add(new Row());
+        }
+        rows.get(depth).add(start, end, tree.frame(node), tree.total(node));
         double s = start;
         double sc = end - start;
-        for (Trie.Node<StackFrame> child : children) {
-            double w = sc * (child.getHit() * 1.0 / node.getHit());
-            traverse(trie, child, s, s + w, depth + 1);
+        for (int i = 0; i < tree.childCount(node); i++) {
+            int child = tree.child(node, i);
+            double w = sc * (tree.total(child) * 1.0 / tree.total(node));
+            traverse(rows, child, s, s + w, depth + 1);
             s += w;
         }
     }
 
+    /**
+     * Finds the rectangle or the aggregated block under the point and repaints only what has changed.
+     */
+    private void hover(int x, int y, JViewport viewport) {
+        int depth = -1;
+        int index = -1;
+        int last = -1;
+        int bx = 0;
+        int bw = 0;
+        int width = getWidth();
+        if (x >= 0 && y >= 0 && y / 24 < rows.size() && width > 0) {
+            Row row = rows.get(y / 24);
+            double pixel = 1.0 / width;
+            // rounding to pixels makes neighbours overlap a bit, so the previous and the next one are checked too
+            int found = row.first(x * pixel);
+            for (int i = Math.max(found - 1, 0); i <= found + 1 && i < row.size; i++) {
+                if (row.end[i] - row.start[i] > pixel) {
+                    int rx = (int) Math.floor(row.start[i] * width);
+                    int rw = (int) Math.ceil((row.end[i] - row.start[i]) * width);
+                    if (x > rx && x < rx + rw) {
+                        depth = y / 24;
+                        index = i;
+                        bx = rx;
+                        bw = rw + 2;
+                    }
+                }
+            }
+            if (index < 0) {
+                Blocks rowBlocks = blocks(rows, y / 24, width);
+                for (int i = Math.max(found - 1, 0); i <= found + 1 && i < row.size; i++) {
+                    if (row.end[i] - row.start[i] > pixel) {
+                        continue;
+                    }
+                    int first = rowBlocks.first(i);
+                    int blockLast = rowBlocks.last(first);
+                    int blockX = (int) Math.floor(row.start[first] * width);
+                    int blockWidth = Math.max(1, (int) Math.ceil(row.end[blockLast] * width) - blockX);
+                    if (x >= blockX && x < blockX + blockWidth) {
+                        depth = y / 24;
+                        index = first;
+                        last = blockLast;
+                        bx = blockX;
+                        bw = blockWidth + 1;
+                    }
+                }
+            }
+        }
+        if (depth == hoveredDepth && index == hoveredIndex) {
+            return;
+        }
+        if (!hoveredBounds.isEmpty()) {
+            repaint(hoveredBounds);
+        }
+        hoveredDepth = depth;
+        hoveredIndex = index;
+        if (depth < 0) {
+            hoveredBounds.setBounds(0, 0, 0, 0);
+            hoveredRectangle = null;
+            viewport.setToolTipText(null);
+            return;
+        }
+        Row row = rows.get(depth);
+        hoveredBounds.setBounds(bx, depth * 24, bw, 25);
+        hoveredRectangle = last < 0 ? new Rectangle(row.start[index], row.end[index], depth, frames.get(row.frame[index])) : null;
+        viewport.setToolTipText(last < 0 ? null : blockTooltip(last - index + 1, row.weight(index, last)));
+        repaint(hoveredBounds);
+    }
+
+    private void resetHover() {
+        hoveredDepth = -1;
+        hoveredIndex = -1;
+        hoveredBounds.setBounds(0, 0, 0, 0);
+        hoveredRectangle = null;
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
-        java.awt.Rectangle bounds = getBounds();
-        g.setColor(Color.WHITE);
-        g.fillRect(0, 0, bounds.width, bounds.height);
         java.awt.Rectangle rect = getVisibleRect();
-        Color[][] colors = new Color[StackFrameType.values().length][];
-        for (StackFrameType value : StackFrameType.values()) {
-            colors[value.ordinal()] = getFrameColor(value);
+        java.awt.Rectangle clip = g.getClipBounds();
+        java.awt.Rectangle area = clip != null ? rect.intersection(clip) : rect;
+        List<Row> rows = this.rows;
+        int width = getWidth();
+        Font font = g.getFont();
+        tiles.paint((Graphics2D) g, area, new TileKey(rows, font), width, (tile, tileArea) -> render(tile, rows, width, font, tileArea));
+        paintOverlay(g, rows, width, rect, area);
+    }
+
+    // Everything that doesn't depend on the view, which is the same for every tile rendered with these rows and width
+    private void render(Graphics g, List<Row> rows, int width, Font font, java.awt.Rectangle area) {
+        g.setFont(font);
+        g.setColor(Color.WHITE);
+        g.fillRect(area.x, area.y, area.width, area.height);
+        int firstDepth = Math.max(0, area.y / 24);
+        int lastDepth = Math.min(rows.size() - 1, (area.y + area.height) / 24);
+        double areaFrom = area.x / (double) width;
+        double areaTo = (area.x + area.width) / (double) width;
+        double pixel = 1.0 / width;
+        for (int depth = firstDepth; depth <= lastDepth; depth++) {
+            Row row = rows.get(depth);
+            Blocks rowBlocks = blocks(rows, depth, width);
+            // the rectangle before the first one may still reach into the area after rounding to pixels
+            int i = Math.max(row.first(areaFrom) - 1, 0);
+            while (i < row.size && row.start[i] < areaTo) {
+                if (row.end[i] - row.start[i] > pixel) {
+                    paintRectangle(g, width, 0, area, row, i, depth, false);
+                    i++;
+                    continue;
+                }
+                int first = rowBlocks.first(i);
+                int last = rowBlocks.last(first);
+                paintBlock(g, width, row, first, last, depth, false);
+                i = last + 1;
+            }
+        }
+    }
+
+    // Labels of rectangles cut by the left edge of the view are moved into the view and the hovered one
+    // is highlighted, both change with the view, so they are painted over tiles and never rendered into them
+    private void paintOverlay(Graphics g, List<Row> rows, int width, java.awt.Rectangle rect, java.awt.Rectangle area) {
+        int firstDepth = Math.max(0, area.y / 24);
+        int lastDepth = Math.min(rows.size() - 1, (area.y + area.height) / 24);
+        double pixel = 1.0 / width;
+        for (int depth = firstDepth; rect.x > 0 && depth <= lastDepth; depth++) {
+            Row row = rows.get(depth);
+            int i = row.first(rect.x / (double) width);
+            if (i < row.size && row.end[i] - row.start[i] > pixel && Math.floor(row.start[i] * width) < rect.x) {
+                paintRectangle(g, width, rect.x, area, row, i, depth, false);
+            }
+        }
+        if (!hoveredBounds.isEmpty() && hoveredBounds.intersects(area)) {
+            Row row = rows.get(hoveredDepth);
+            if (hoveredRectangle != null) {
+                paintRectangle(g, width, rect.x, area, row, hoveredIndex, hoveredDepth, true);
+            } else if (row.end[hoveredIndex] - row.start[hoveredIndex] <= pixel) {
+                Blocks rowBlocks = blocks(rows, hoveredDepth, width);
+                int first = rowBlocks.first(hoveredIndex);
+                paintBlock(g, width, row, first, rowBlocks.last(first), hoveredDepth, true);
+            }
+        }
+    }
+
+    private Blocks blocks(List<Row> rows, int depth, int width) {
+        synchronized (cacheLock) {
+            if (rows != blocksRows || width != blocksWidth) {
+                blocksRows = rows;
+                blocksWidth = width;
+                blocks = new Blocks[rows.size()];
+            }
+            if (blocks[depth] == null) {
+                blocks[depth] = new Blocks(rows.get(depth), width);
+            }
+            return blocks[depth];
         }
-        for (Rectangle rectangle : rectangles) {
-            int x = (int) Math.floor(rectangle.start * bounds.width);
-            int width = (int) Math.ceil((rectangle.end - rectangle.start) * bounds.width);
-            int y = rectangle.depth * 24;
-            int height = 24;
-            if (!rect.intersects(x, y, width, height) || width <= 1) {
-                continue;
-            }
-            boolean hovered = point != null && point.x > x && point.y > y && point.x < x + width && point.y < y + height;
-            var clrs = colors[rectangle.frame.type().ordinal()];
-            Graphics2D g2 = (Graphics2D) g.create(x, y, width + 1, height);
-            g2.setColor(!hovered ? clrs[0] : clrs[1]);
-            g2.fillRect(0, 0, width + 1, height);
-            g2.setColor(clrs[2]);
-            g2.drawLine(0, 0, 0, height);
-            g2.drawLine(width + 1, 0, width + 1, height);
-//            g2.drawLine(0, 0, width, 0);
-            g2.drawLine(0, height, width, height);
-            g2.setColor(clrs[3]);
-            int max = Math.max(0, rect.x - x);
-            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            g2.drawString(generateString(rectangle.frame, g2, width - 5), max + 5, 16);
-            g2.dispose();
-            if (hovered) {
-                hoveredRectangle = rectangle;
+    }
+
+    private void paintBlock(Graphics g, int componentWidth, Row row, int first, int last, int depth, boolean hovered) {
+        int x = (int) Math.floor(row.start[first] * componentWidth);
+        int width = Math.max(1, (int) Math.ceil(row.end[last] * componentWidth) - x);
+        int y = depth * 24;
+        int height = 24;
+        g.setColor(hovered ? AGGREGATED[1] : AGGREGATED[0]);
+        g.fillRect(x, y, width, height);
+        g.setColor(AGGREGATED[2]);
+        g.drawLine(x, y + height - 1, x + width, y + height - 1);
+    }
+
+    private String blockTooltip(int count, long weight) {
+        long total = tree.total(FrozenTree.ROOT);
+        return "%d frames narrower than a pixel: %d (%.2f%%)".formatted(
+                count, weight, total > 0 ? weight * 100.0 / total : 0.0
+        );
+    }
+
+    private void paintRectangle(Graphics g, int componentWidth, int visibleX, java.awt.Rectangle area, Row row, int index, int depth, boolean hovered) {
+        int x = (int) Math.floor(row.start[index] * componentWidth);
+        int width = (int) Math.ceil((row.end[index] - row.start[index]) * componentWidth);
+        int y = depth * 24;
+        int height = 24;
+        if (!area.intersects(x, y, width + 2, height + 1) || width <= 1) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g.create(x, y, width + 1, height);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        Label label = label(row.frame[index], g2.getFontMetrics());
+        var clrs = COLORS[label.type().ordinal()];
+        g2.setColor(!hovered ? clrs[0] : clrs[1]);
+        g2.fillRect(0, 0, width + 1, height);
+        g2.setColor(clrs[2]);
+        g2.drawLine(0, 0, 0, height);
+        g2.drawLine(width + 1, 0, width + 1, height);
+//        g2.drawLine(0, 0, width, 0);
+        g2.drawLine(0, height, width, height);
+        g2.setColor(clrs[3]);
+        int max = Math.max(0, visibleX - x);
+        g2.drawString(label.fit(width - 5), max + 5, 16);
+        g2.dispose();
+    }
+
+    // Colors of frames by type: fill, hovered fill, border and text
+    private static final Color[][] COLORS = new Color[StackFrameType.values().length][];
+
+    static {
+        for (StackFrameType type : StackFrameType.values()) {
+            COLORS[type.ordinal()] = getFrameColor(type);
+        }
+    }
+
+    // Neutral colors of aggregated blocks: fill, hovered fill and border
+    private static final Color[] AGGREGATED = {
+            new Color(224, 224, 224),
+            new Color(200, 200, 200),
+            new Color(168, 168, 168)
+    };
+
+    // Aggregated blocks of a row as ranges of rectangle indices. A run of sub-pixel rectangles depends only
+    // on the row and the width, so every tile and hit testing find the same blocks wherever they start from
+    private static class Blocks {
+        private final Row row;
+        private final int width;
+        // first and last rectangles of runs found so far, sorted by the first one; runs never overlap
+        private int[] firsts = new int[16];
+        private int[] lasts = new int[16];
+        private int count;
+
+        Blocks(Row row, int width) {
+            this.row = row;
+            this.width = width;
+        }
+
+        /**
+         * @return the first rectangle of the block with the sub-pixel rectangle
+         */
+        synchronized int first(int index) {
+            int position = Arrays.binarySearch(firsts, 0, count, index);
+            if (position >= 0) {
+                return index;
             }
+            position = -position - 1;
+            if (position > 0 && lasts[position - 1] >= index) {
+                return firsts[position - 1];
+            }
+            int first = row.firstOfRun(index, width);
+            if (count == firsts.length) {
+                firsts = Arrays.copyOf(firsts, count * 2);
+                lasts = Arrays.copyOf(lasts, count * 2);
+            }
+            System.arraycopy(firsts, position, firsts, position + 1, count - position);
+            System.arraycopy(lasts, position, lasts, position + 1, count - position);
+            firsts[position] = first;
+            lasts[position] = row.lastOfRun(index, width);
+            count++;
+            return first;
+        }
+
+        /**
+         * @return the last rectangle of the block, which is found by {@link #first(int)} before
+         */
+        synchronized int last(int first) {
+            return lasts[Arrays.binarySearch(firsts, 0, count, first)];
         }
     }
 
+    private record TileKey(List<Row> rows, Font font) {}
+
     private record Rectangle(
             double start,
             double end,
@@ -217,20 +484,168 @@ public class IcicleGraphComponent extends JComponent {
             StackFrame frame
     ) {}
 
-    private String generateString(StackFrame frame, Graphics2D g2d, int maxWidth) {
-        if (frame.type() == StackFrameType.INTERPRETED ||
-                frame.type() == StackFrameType.JIT_COMPILED ||
-                frame.type() == StackFrameType.C1_COMPILED ||
-                frame.type() == StackFrameType.INLINED) {
-            String clsName = frame.className();
-            if (clsName == null) {
-                return frame.methodName();
-            } else {
-                String fullName = "%s.%s".formatted(frame.className(), frame.methodName());
-                FontMetrics fontMetrics = g2d.getFontMetrics();
-                if (fontMetrics.stringWidth(fullName) < maxWidth) {
-                    return fullName;
+    // Rectangles of a single depth in the order of their start, stored column by column
+    static class Row {
+        private double[] start = new double[16];
+        private double[] end = new double[16];
+        private int[] frame = new int[16];
+        // sum of weights of rectangles up to the index inclusive
+        private long[] weights = new long[16];
+        private int size;
+
+        void add(double start, double end, int frame, long weight) {
+            if (size == this.start.length) {
+                resize(size * 2);
+            }
+            this.start[size] = start;
+            this.end[size] = end;
+            this.frame[size] = frame;
+            this.weights[size] = size > 0 ? weights[size - 1] + weight : weight;
+            size++;
+        }
+
+        // A run of sub-pixel rectangles is walked a pixel column at a time, so its cost depends on the width
+        // of the run in pixels and not on the number of rectangles in it. Columns are compared as integers
+        // and every step moves by at least one rectangle, so rounding of positions can't stop the walk.
+        // Neighbours of a run are sub-pixel rectangles with no empty column between them.
+        int lastOfRun(int index, int width) {
+            double pixel = 1.0 / width;
+            int last = index;
+            while (true) {
+                // rectangles after the last one ending in its column are narrower than a pixel and touch it
+                int next = Math.max(endingAfter(column(end[last], width), width), last + 1);
+                last = next - 1;
+                if (next >= size
+                        || end[next] - start[next] > pixel
+                        || column(start[next], width) > column(end[last], width) + 1) {
+                    return last;
+                }
+                last = next;
+            }
+        }
+
+        int firstOfRun(int index, int width) {
+            double pixel = 1.0 / width;
+            int first = index;
+            while (true) {
+                // rectangles before the first one starting in its column are narrower than a pixel and touch it
+                int previous = Math.min(startingBefore(column(start[first], width), width), first) - 1;
+                first = previous + 1;
+                if (previous < 0
+                        || end[previous] - start[previous] > pixel
+                        || column(start[first], width) > column(end[previous], width) + 1) {
+                    return first;
+                }
+                first = previous;
+            }
+        }
+
+        private static int column(double position, int width) {
+            return (int) Math.floor(position * width);
+        }
+
+        long weight(int first, int last) {
+            return weights[last] - (first > 0 ? weights[first - 1] : 0);
+        }
+
+        // Rectangles don't overlap, so their ends are sorted too
+        int first(double from) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (end[middle] <= from) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return index of the first rectangle ending after the pixel column
+         */
+        int endingAfter(int column, int width) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (column(end[middle], width) <= column) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
                 }
+            }
+            return low;
+        }
+
+        /**
+         * @return number of rectangles starting before the pixel column
+         */
+        int startingBefore(int column, int width) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (column(start[middle], width) < column) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        void trim() {
+            resize(size);
+        }
+
+        private void resize(int capacity) {
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+            frame = Arrays.copyOf(frame, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+    }
+
+    private Label label(int frameId, FontMetrics metrics) {
+        synchronized (cacheLock) {
+            if (!metrics.getFont().equals(labelFont) || !metrics.getFontRenderContext().equals(labelContext)) {
+                labelFont = metrics.getFont();
+                labelContext = metrics.getFontRenderContext();
+                labels = new Label[labels.length];
+            }
+            if (frameId >= labels.length) {
+                labels = Arrays.copyOf(labels, Math.max(frameId + 1, labels.length * 2));
+            }
+            Label label = labels[frameId];
+            if (label == null) {
+                label = Label.of(frames.get(frameId), metrics);
+                labels[frameId] = label;
+            }
+            return label;
+        }
+    }
+
+    // Label variants of a frame from the longest to the shortest with their widths in pixels
+    private record Label(StackFrameType type, String[] variants, int[] widths) {
+
+        static Label of(StackFrame frame, FontMetrics metrics) {
+            String[] variants = variants(frame);
+            int[] widths = new int[variants.length];
+            for (int i = 0; i < variants.length; i++) {
+                widths[i] = metrics.stringWidth(variants[i]);
+            }
+            return new Label(frame.type(), variants, widths);
+        }
+
+        private static String[] variants(StackFrame frame) {
+            if ((frame.type() == StackFrameType.INTERPRETED ||
+                    frame.type() == StackFrameType.JIT_COMPILED ||
+                    frame.type() == StackFrameType.C1_COMPILED ||
+                    frame.type() == StackFrameType.INLINED) && frame.className() != null) {
+                String fullName = "%s.%s".formatted(frame.className(), frame.methodName());
                 String[] split = frame.className().split("\\.");
                 StringBuilder packages = new StringBuilder();
                 for (int i = 0; i < split.length - 1; i++) {
@@ -238,21 +653,26 @@ public class IcicleGraphComponent extends JComponent {
                     packages.append(".");
                 }
                 String shortPackages = "%s.%s".formatted(packages + split[split.length - 1], frame.methodName());
-                if (fontMetrics.stringWidth(shortPackages) < maxWidth) {
-                    return shortPackages;
-                }
                 String onlyClassName = "%s.%s".formatted(split[split.length - 1], frame.methodName());
-                if (fontMetrics.stringWidth(onlyClassName) < maxWidth) {
-                    return onlyClassName;
+                return new String[] {fullName, shortPackages, onlyClassName, frame.methodName()};
+            }
+            return new String[] {frame.methodName()};
+        }
+
+        /**
+         * @return the longest variant narrower than the width or the method name if none fits
+         */
+        String fit(int maxWidth) {
+            for (int i = 0; i < variants.length - 1; i++) {
+                if (widths[i] < maxWidth) {
+                    return variants[i];
                 }
-                return frame.methodName();
             }
-        } else {
-            return frame.methodName();
+            return variants[variants.length - 1];
         }
     }
 
-    private Color[] getFrameColor(StackFrameType type) {
+    private static Color[] getFrameColor(StackFrameType type) {
         switch (type) {
             case INTERPRETED, JIT_COMPILED, C1_COMPILED, INLINED -> {
                 return new Color[] {
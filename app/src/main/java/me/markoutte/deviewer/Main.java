@@ -18,12 +18,18 @@ package me.markoutte.deviewer;
 
 import com.formdev.flatlaf.FlatLightLaf;
 import com.formdev.flatlaf.util.SystemInfo;
+import me.markoutte.deviewer.jfr.FrameTable;
+import me.markoutte.deviewer.jfr.LoadProgress;
+import me.markoutte.deviewer.jfr.Metric;
+import me.markoutte.deviewer.jfr.RecordingTail;
 import me.markoutte.deviewer.jfr.StackFrame;
 import me.markoutte.deviewer.jfr.StackFrameType;
-import me.markoutte.deviewer.utils.Trie;
+import me.markoutte.deviewer.jfr.TimeRange;
+import me.markoutte.deviewer.utils.FrameTree;
+import me.markoutte.deviewer.utils.FrozenTree;
+import one.jfr.Chunk;
 import one.jfr.JfrReader;
-import one.jfr.event.Event;
-import one.jfr.event.ExecutionSample;
+import one.jfr.RecordingSummary;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -34,11 +40,16 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
-
-import static me.markoutte.deviewer.utils.Jvm.jvmNameToCanonical;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
 
 public class Main {
 
+    private static Profile profile;
+    private static RecordingFollower<FrameTree, FrozenTree[]> follower;
+    private static ProfileLoader loader;
+
     public static void main(String[] args) {
         if (SystemInfo.isMacOS) {
             System.setProperty( "apple.laf.useScreenMenuBar", "true" );
@@ -49,11 +60,22 @@ public class Main {
         var frame = new JFrame("");
 
         var panel = new JComponent() {};
+        JCheckBoxMenuItem follow = new JCheckBoxMenuItem("Follow File");
+        follow.addActionListener(e -> follow.setSelected(follow(follow, follow.isSelected())));
         ActionListener al = e -> {
             JFileChooser fc = new JFileChooser();
             if( fc.showOpenDialog(panel) == JFileChooser.APPROVE_OPTION ) {
                 File file = fc.getSelectedFile();
-                reload(panel, file);
+                follow.setSelected(follow(follow, false));
+                open(panel, file, false);
+            }
+        };
+        ActionListener range = e -> {
+            JFileChooser fc = new JFileChooser();
+            if( fc.showOpenDialog(panel) == JFileChooser.APPROVE_OPTION ) {
+                File file = fc.getSelectedFile();
+                follow.setSelected(follow(follow, false));
+                open(panel, file, true);
             }
         };
 
@@ -63,6 +85,10 @@ public class Main {
         item.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, SystemInfo.isMacOS ? KeyEvent.META_DOWN_MASK : KeyEvent.CTRL_DOWN_MASK));
         item.addActionListener(al);
         menu.add(item);
+        JMenuItem rangeItem = new JMenuItem("Open Range...");
+        rangeItem.addActionListener(range);
+        menu.add(rangeItem);
+        menu.add(follow);
         menuBar.add(menu);
         frame.setJMenuBar(menuBar);
 
@@ -93,74 +119,176 @@ public class Main {
         frame.setVisible(true);
     }
 
-    private static void reload(JComponent panel, File file) {
-        try (var reader = new JfrReader(file.getAbsolutePath())) {
-            Event event;
-            var eventsByGroup = new HashMap<Class<? extends Event>, List<Event>>();
-            var stackTraces = new Trie<StackFrame, StackFrame>(input -> input);
-            StackFrame allFrame = new StackFrame(null, "Everything", Collections.emptyList(), null, StackFrameType.UNDEFINED);
-            while ((event = reader.readEvent()) != null) {
-                eventsByGroup.computeIfAbsent(event.getClass(), eventClass -> new ArrayList<>()).add(event);
-                if (event instanceof ExecutionSample sample) {
-                    final List<StackFrame> chain = new ArrayList<>();
-                    chain.add(allFrame);
-                    var stacktrace = reader.stackTraces.get(sample.stackTraceId);
-                    for (int i = stacktrace.methods.length - 1; i >= 0; i--) {
-                        chain.add(methodString(
-                                reader,
-                                stacktrace.methods[i],
-                                StackFrameType.values()[stacktrace.types[i]]
-                        ));
-                    }
-                    stackTraces.add(chain);
-                }
+    private static void open(JComponent panel, File file, boolean askRange) {
+        try {
+            RecordingSummary summary = JfrReader.readChunkSummary(file.getAbsolutePath());
+            if (summary.chunks.isEmpty()) {
+                throw new IOException("Incomplete JFR file");
+            }
+            TimeRange range = askRange ? TimeRangeDialog.ask(panel, summary) : TimeRange.ALL;
+            if (range == null) {
+                return;
             }
-            panel.removeAll();
-            var tabbed = new JTabbedPane();
-            tabbed.setTabLayoutPolicy(JTabbedPane.SCROLL_TAB_LAYOUT);
-            JPanel emptyPane = new JPanel();
-            emptyPane.setBorder(new EmptyBorder(0, 60, 0, 0));
-            tabbed.putClientProperty("JTabbedPane.leadingComponent", emptyPane);
-            IcicleGraphComponent icicleGraphComponent = new IcicleGraphComponent(allFrame, stackTraces);
-            JScrollPane scrollPane1 = new JScrollPane(icicleGraphComponent);
-            scrollPane1.putClientProperty("JScrollPane.smoothScrolling", true);
-            scrollPane1.getVerticalScrollBar().setUnitIncrement(24);
-            scrollPane1.getHorizontalScrollBar().setUnitIncrement(24);
-            scrollPane1.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_ALWAYS);
-            scrollPane1.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
-            tabbed.addTab("Icicle Graph", scrollPane1);
-            JScrollPane scrollPane2 = new JScrollPane(new CallTree(allFrame, stackTraces));
-            scrollPane2.getViewport().setScrollMode(JViewport.BACKINGSTORE_SCROLL_MODE);
-            tabbed.addTab("Call Tree", scrollPane2);
-            JScrollPane scrollPane3 = new JScrollPane(new MethodList(stackTraces));
-            scrollPane3.getViewport().setScrollMode(JViewport.BACKINGSTORE_SCROLL_MODE);
-            tabbed.addTab("Method List", scrollPane3);
-            panel.add(tabbed, BorderLayout.CENTER);
-            panel.revalidate();
-            panel.repaint();
+            reload(panel, file, summary, range);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-
     }
 
-    private static StackFrame methodString(JfrReader reader, long method, StackFrameType type) {
-        var cls = reader.classes.get(reader.methods.get(method).cls);
-        var methodRef = reader.methods.get(method);
-        List<String> parameters = jvmNameToCanonical(new String(reader.symbols.get(methodRef.sig)));
-        String returnValue = parameters.remove(parameters.size() - 1);
-        return new StackFrame(
-                Optional.ofNullable(reader.symbols.get(cls.name))
-                        .filter(bytes -> bytes.length > 0)
-                        .map(String::new)
-                        .map(s -> s.replace('/', '.'))
-                        .orElse(null),
-                new String(reader.symbols.get(methodRef.name)),
-                parameters,
-                returnValue,
-                type
+    private static void reload(JComponent panel, File file, RecordingSummary summary, TimeRange range) {
+        if (loader != null) {
+            loader.cancelLoading();
+        }
+        List<Chunk> chunks = range.select(summary.chunks);
+        FrameTable frames = new FrameTable();
+        int rootFrame = frames.intern(new StackFrame(null, "Everything", Collections.emptyList(), null, StackFrameType.UNDEFINED));
+        LoadProgress progress = new LoadProgress(chunks);
+        SummaryPanel summaryPanel = new SummaryPanel(file, summary);
+        summaryPanel.countEvents(file, summary.chunks);
+        ProfileLoader worker = new ProfileLoader(
+                file.getAbsolutePath(), chunks, range, frames, rootFrame, progress,
+                tree -> {
+                    summaryPanel.finish("Loaded");
+                    show(panel, file, summary.chunks, range, frames, tree);
+                },
+                error -> {
+                    summaryPanel.finish("Failed to load: " + error.getMessage());
+                    JOptionPane.showMessageDialog(panel, "Cannot load %s: %s".formatted(file.getName(), error.getMessage()), "Open", JOptionPane.ERROR_MESSAGE);
+                }
         );
+        summaryPanel.track(progress, () -> {
+            worker.cancelLoading();
+            summaryPanel.finish("Loading is cancelled");
+        });
+        panel.removeAll();
+        panel.add(summaryPanel, BorderLayout.CENTER);
+        panel.revalidate();
+        panel.repaint();
+        if (profile != null) {
+            profile.owner().shutdown();
+        }
+        profile = null;
+        loader = worker;
+        worker.execute();
     }
 
+    // All views are built before the panel content is replaced, so the panel never shows a partial profile
+    private static void show(
+            JComponent panel,
+            File file,
+            List<Chunk> chunks,
+            TimeRange range,
+            FrameTable frames,
+            FrameTree tree
+    ) {
+        // the loader has frozen every metric, so this only reads the cached layouts
+        FrozenTree[] layouts = freezeAll(tree);
+        JComboBox<Metric> metrics = new JComboBox<>(Metric.values());
+        for (Metric metric : Metric.values()) {
+            if (layouts[metric.ordinal()].total(FrozenTree.ROOT) > 0) {
+                metrics.setSelectedItem(metric);
+                break;
+            }
+        }
+        FrozenTree frozen = layouts[((Metric) metrics.getSelectedItem()).ordinal()];
+        var tabbed = new JTabbedPane();
+        tabbed.setTabLayoutPolicy(JTabbedPane.SCROLL_TAB_LAYOUT);
+        JPanel emptyPane = new JPanel();
+        emptyPane.setBorder(new EmptyBorder(0, 60, 0, 0));
+        tabbed.putClientProperty("JTabbedPane.leadingComponent", emptyPane);
+        tabbed.putClientProperty("JTabbedPane.trailingComponent", metrics);
+        IcicleGraphComponent icicleGraphComponent = new IcicleGraphComponent(frames, frozen);
+        JScrollPane scrollPane1 = new JScrollPane(icicleGraphComponent);
+        scrollPane1.putClientProperty("JScrollPane.smoothScrolling", true);
+        scrollPane1.getVerticalScrollBar().setUnitIncrement(24);
+        scrollPane1.getHorizontalScrollBar().setUnitIncrement(24);
+        scrollPane1.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_ALWAYS);
+        scrollPane1.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
+        tabbed.addTab("Icicle Graph", scrollPane1);
+        CallTree callTree = new CallTree(frames, frozen);
+        JScrollPane scrollPane2 = new JScrollPane(callTree);
+        scrollPane2.getViewport().setScrollMode(JViewport.BACKINGSTORE_SCROLL_MODE);
+        tabbed.addTab("Call Tree", scrollPane2);
+        MethodList methodList = new MethodList(frames, frozen);
+        JScrollPane scrollPane3 = new JScrollPane(methodList);
+        scrollPane3.getViewport().setScrollMode(JViewport.BACKINGSTORE_SCROLL_MODE);
+        tabbed.addTab("Method List", scrollPane3);
+        panel.removeAll();
+        panel.add(tabbed, BorderLayout.CENTER);
+        panel.revalidate();
+        panel.repaint();
+        // layouts of every metric are kept by the views, so switching is only rebuilding of the views
+        Consumer<FrozenTree[]> update = updated -> {
+            System.arraycopy(updated, 0, layouts, 0, layouts.length);
+            FrozenTree selected = layouts[((Metric) metrics.getSelectedItem()).ordinal()];
+            icicleGraphComponent.update(selected);
+            callTree.update(selected);
+            methodList.update(selected);
+        };
+        metrics.addActionListener(e -> update.accept(layouts));
+        // from now on the tree is touched only by this thread, views get frozen layouts of it
+        ScheduledExecutorService owner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Deviewer Profile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        profile = new Profile(file, chunks, range, frames, tree.frame(FrameTree.ROOT), tree, owner, update);
+    }
+
+    private static FrozenTree[] freezeAll(FrameTree tree) {
+        FrozenTree[] layouts = new FrozenTree[Metric.values().length];
+        for (Metric metric : Metric.values()) {
+            layouts[metric.ordinal()] = tree.freeze(metric.ordinal());
+        }
+        return layouts;
+    }
+
+    /**
+     * Starts or stops following the file of the shown profile: new chunks are parsed when async-profiler
+     * completes them and are merged into the existing tree on its owner thread, views get the new layouts.
+     *
+     * @return true if the file is being followed
+     */
+    private static boolean follow(JCheckBoxMenuItem item, boolean enabled) {
+        if (follower != null) {
+            follower.close();
+            follower = null;
+        }
+        if (!enabled || profile == null) {
+            return false;
+        }
+        Profile p = profile;
+        follower = new RecordingFollower<>(
+                p.owner(),
+                RecordingTail.after(p.file().getAbsolutePath(), p.chunks()),
+                (chunk, reader) -> ProfileLoader.readChunk(chunk, reader, p.frames(), p.rootFrame(), p.range(), new LoadProgress(List.of(chunk))),
+                results -> {
+                    results.forEach(p.tree()::merge);
+                    return freezeAll(p.tree());
+                },
+                p.update(),
+                error -> {
+                    follower = null;
+                    item.setSelected(false);
+                    JOptionPane.showMessageDialog(
+                            null,
+                            "Cannot follow %s: %s".formatted(p.file().getName(), error.getMessage()),
+                            "Follow File",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+        );
+        return true;
+    }
 
+    private record Profile(
+            File file,
+            List<Chunk> chunks,
+            TimeRange range,
+            FrameTable frames,
+            int rootFrame,
+            FrameTree tree,
+            ScheduledExecutorService owner,
+            Consumer<FrozenTree[]> update
+    ) {}
 }
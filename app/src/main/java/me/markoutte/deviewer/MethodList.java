@@ -16,78 +16,70 @@
 
 package me.markoutte.deviewer;
 
+import me.markoutte.deviewer.jfr.FrameTable;
 import me.markoutte.deviewer.jfr.StackFrame;
+import me.markoutte.deviewer.utils.FrameTree;
+import me.markoutte.deviewer.utils.FrozenTree;
 import me.markoutte.deviewer.utils.StackFrames;
-import me.markoutte.deviewer.utils.Trie;
 import org.jetbrains.annotations.Nls;
 
 import javax.swing.*;
+import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.TableModel;
-import java.util.HashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 public class MethodList extends JTable {
 
-    private final long totalCalls;
-    private final Method[] methods;
-
-    public MethodList(Trie<StackFrame, StackFrame> trie) {
-        var totalCalls = new AtomicLong(0);
-        var frames = new HashMap<StackFrame, Method>();
-        trie.forEach(stackFrames -> {
-            for (StackFrame stackFrame : stackFrames) {
-                frames.computeIfAbsent(stackFrame, Method::new).hit();
-                totalCalls.incrementAndGet();
-            }
-        });
-        this.totalCalls = totalCalls.get();
-        this.methods = new Method[frames.size()];
-        int i = 0;
-        for (var value : frames.values()) {
-            methods[i] = value;
-            int targetIndexToSet = i; //
-            for (int j = i - 1; j >= 0 && methods[j].getCalls() < value.getCalls(); j--) {
-//                methods[j + 1] = methods[j];
-//                methods[j] = value;
-                targetIndexToSet = j;
-            }
-            if (targetIndexToSet != i) {
-                System.arraycopy(methods, targetIndexToSet, methods, targetIndexToSet + 1, i - targetIndexToSet);
-                methods[targetIndexToSet] = value;
-            }
-            i++;
-        }
-
-        setModel(new Model());
+    private final FrameTable frameTable;
+    private FrozenTree tree;
+    private final Model model = new Model();
+    private long totalCalls;
+    private Method[] methods;
+
+    public MethodList(FrameTable frameTable, FrozenTree tree) {
+        this.frameTable = frameTable;
+        this.tree = tree;
+        collect();
+        setModel(model);
     }
 
-    private static class Method {
-        private StackFrame frame;
-        private long calls = 0;
+    /**
+     * Recomputes the list for the new layout of the tree.
+     */
+    public void update(FrozenTree tree) {
+        this.tree = tree;
+        collect();
+        model.fireTableDataChanged();
+    }
 
-        public Method(StackFrame frame) {
-            this.frame = frame;
+    private void collect() {
+        FrameTree.Rollup rollup = tree.rollup();
+        var found = new ArrayList<Method>();
+        for (int frame = 0; frame < rollup.frames(); frame++) {
+            if (rollup.inclusive(frame) > 0) {
+                found.add(new Method(frameTable.get(frame), rollup.self(frame), rollup.inclusive(frame)));
+            }
         }
+        found.sort(Comparator.comparingLong(Method::total).reversed().thenComparing(Comparator.comparingLong(Method::self).reversed()));
+        this.totalCalls = tree.total(FrozenTree.ROOT);
+        this.methods = found.toArray(new Method[0]);
+    }
 
-        public StackFrame getFrame() {
-            return frame;
-        }
+    private record Method(StackFrame frame, long self, long total) { }
 
-        public void setFrame(StackFrame frame) {
-            this.frame = frame;
-        }
+    private class Model implements TableModel {
 
-        public long getCalls() {
-            return calls;
-        }
+        private final List<TableModelListener> listeners = new ArrayList<>();
 
-        public void hit() {
-            calls++;
+        void fireTableDataChanged() {
+            TableModelEvent event = new TableModelEvent(this);
+            for (TableModelListener listener : listeners) {
+                listener.tableChanged(event);
+            }
         }
-    }
-
-    private class Model implements TableModel {
 
         @Override
         public int getRowCount() {
@@ -96,15 +88,16 @@ public class MethodList extends JTable {
 
         @Override
         public int getColumnCount() {
-            return 3;
+            return 4;
         }
 
         @Override
         public @Nls String getColumnName(int columnIndex) {
             return switch (columnIndex) {
                 case 0 -> "Name";
-                case 1 -> "Count";
-                case 2 -> "Ratio";
+                case 1 -> "Self";
+                case 2 -> "Total";
+                case 3 -> "Ratio";
                 default -> throw new IllegalArgumentException("Too many columns expected");
             };
         }
@@ -113,8 +106,8 @@ public class MethodList extends JTable {
         public Class<?> getColumnClass(int columnIndex) {
             return switch (columnIndex) {
                 case 0 -> String.class;
-                case 1 -> Long.class;
-                case 2 -> Double.class;
+                case 1, 2 -> Long.class;
+                case 3 -> Double.class;
                 default -> throw new IllegalArgumentException("Too many columns expected");
             };
         }
@@ -128,9 +121,10 @@ public class MethodList extends JTable {
         public Object getValueAt(int rowIndex, int columnIndex) {
             Method method = methods[rowIndex];
             return switch (columnIndex) {
-                case 0 -> StackFrames.format(method.frame);
-                case 1 -> method.getCalls();
-                case 2 -> method.getCalls() * 1.0 / totalCalls * 100;
+                case 0 -> StackFrames.format(method.frame());
+                case 1 -> method.self();
+                case 2 -> method.total();
+                case 3 -> method.total() * 1.0 / totalCalls * 100;
                 default -> throw new IllegalArgumentException("Too many columns expected");
             };
         }
@@ -142,12 +136,12 @@ public class MethodList extends JTable {
 
         @Override
         public void addTableModelListener(TableModelListener l) {
-
+            listeners.add(l);
         }
 
         @Override
         public void removeTableModelListener(TableModelListener l) {
-
+            listeners.remove(l);
         }
     }
 }
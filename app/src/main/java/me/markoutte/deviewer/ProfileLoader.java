@@ -0,0 +1,174 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer;
+
+import me.markoutte.deviewer.jfr.EventStore;
+import me.markoutte.deviewer.jfr.FrameTable;
+import me.markoutte.deviewer.jfr.LoadProgress;
+import me.markoutte.deviewer.jfr.Metric;
+import me.markoutte.deviewer.jfr.ParallelJfrLoader;
+import me.markoutte.deviewer.jfr.TimeRange;
+import me.markoutte.deviewer.utils.FrameTree;
+import one.jfr.Chunk;
+import one.jfr.Dictionary;
+import one.jfr.JfrReader;
+import one.jfr.event.EventCursor;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Loads stack traces of a recording off the Event Dispatch Thread.
+ *
+ * Every chunk is parsed into its own partial tree in parallel, partial trees are merged pairwise
+ * on the same pool, so the tree is built without any single-threaded aggregation. The tree is handed over to the Event Dispatch Thread to build views.
+ */
+public class ProfileLoader extends SwingWorker<FrameTree, Void> {
+
+    private static final int PROGRESS_INTERVAL = 4096;
+
+    private final String fileName;
+    private final List<Chunk> chunks;
+    private final TimeRange range;
+    private final FrameTable frames;
+    private final int rootFrame;
+    private final LoadProgress progress;
+    private final Consumer<FrameTree> onLoaded;
+    private final Consumer<Throwable> onFailed;
+
+    public ProfileLoader(
+            String fileName,
+            List<Chunk> chunks,
+            TimeRange range,
+            FrameTable frames,
+            int rootFrame,
+            LoadProgress progress,
+            Consumer<FrameTree> onLoaded,
+            Consumer<Throwable> onFailed
+    ) {
+        this.fileName = fileName;
+        this.chunks = chunks;
+        this.range = range;
+        this.frames = frames;
+        this.rootFrame = rootFrame;
+        this.progress = progress;
+        this.onLoaded = onLoaded;
+        this.onFailed = onFailed;
+    }
+
+    @Override
+    protected FrameTree doInBackground() throws IOException {
+        progress.setStage(LoadProgress.Stage.PARSE);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<FrameTree> partials = new ParallelJfrLoader(pool).load(
+                fileName, chunks, (chunk, reader) -> readChunk(chunk, reader, frames, rootFrame, range, progress)
+        );
+        progress.setStage(LoadProgress.Stage.AGGREGATE);
+        progress.checkCancelled();
+        var tree = partials.isEmpty() ? new FrameTree(rootFrame, Metric.values().length) : FrameTree.merge(partials, pool);
+        tree.trim();
+        progress.setStage(LoadProgress.Stage.LAYOUT);
+        // layouts are cached by the tree, so views get them on the Event Dispatch Thread and switch metrics for free
+        for (Metric metric : Metric.values()) {
+            progress.checkCancelled();
+            tree.freeze(metric.ordinal());
+        }
+        return tree;
+    }
+
+    /**
+     * Stops parsing as soon as workers notice it, views are not built for a cancelled load.
+     */
+    public void cancelLoading() {
+        progress.cancel();
+        cancel(false);
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            onLoaded.accept(get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            onFailed.accept(e.getCause());
+        }
+    }
+
+    static FrameTree readChunk(
+            Chunk chunk,
+            JfrReader reader,
+            FrameTable frames,
+            int rootFrame,
+            TimeRange range,
+            LoadProgress progress
+    ) throws IOException {
+        var events = new EventStore();
+        var cursor = new EventCursor();
+        long reported = 0;
+        int count = 0;
+        while (reader.nextEvent(cursor)) {
+            events.add(cursor);
+            if (++count % PROGRESS_INTERVAL == 0) {
+                progress.checkCancelled();
+                long position = reader.position();
+                progress.addBytes(position - reported);
+                reported = position;
+            }
+        }
+        progress.addBytes(chunk.size - reported);
+
+        // most events share a few stack traces, so weights of all metrics are summed before any frame is resolved
+        Metric[] metrics = Metric.values();
+        var weights = new Dictionary<long[]>();
+        for (Metric metric : metrics) {
+            var columns = events.get(metric.event());
+            columns.forEach(range.startTicks(chunk), range.endTicks(chunk), tid -> true, row -> {
+                int stackTraceId = columns.stackTraceId(row);
+                if (stackTraceId != 0) {
+                    long[] values = weights.get(stackTraceId);
+                    if (values == null) {
+                        values = new long[metrics.length];
+                        weights.put(stackTraceId, values);
+                    }
+                    values[metric.ordinal()] += columns.value(row);
+                }
+            });
+        }
+
+        var chunkFrames = frames.forChunk(reader);
+        var tree = new FrameTree(rootFrame, metrics.length);
+        weights.forEach((stackTraceId, values) -> {
+            progress.checkCancelled();
+            for (Metric metric : metrics) {
+                if (metric.isTicks()) {
+                    values[metric.ordinal()] = chunk.ticksToNanos(values[metric.ordinal()]);
+                }
+            }
+            tree.add(chunkFrames.stackTrace((int) stackTraceId), values);
+        });
+        progress.chunkDone();
+        return tree;
+    }
+}
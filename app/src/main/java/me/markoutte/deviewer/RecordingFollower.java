@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer;
+
+import me.markoutte.deviewer.jfr.ParallelJfrLoader;
+import me.markoutte.deviewer.jfr.RecordingTail;
+import one.jfr.Chunk;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Polls a recording that is still being written and parses only newly completed chunks.
+ *
+ * Polling, parsing and merging run on the thread of the given executor, which owns whatever the results
+ * are merged into. Only the merged value is handed over to the Event Dispatch Thread.
+ * Following stops on the first error, which is reported on the Event Dispatch Thread as well.
+ */
+public class RecordingFollower<R, V> implements AutoCloseable {
+
+    private static final long POLL_INTERVAL_MILLIS = 2000;
+
+    private final RecordingTail tail;
+    private final ParallelJfrLoader.ChunkParser<R> parser;
+    private final Function<List<R>, V> merger;
+    private final Consumer<V> onMerged;
+    private final Consumer<Exception> onFailed;
+    private final ScheduledFuture<?> polling;
+    private volatile boolean closed;
+
+    /**
+     * @param owner single thread that merges results, no other thread may touch what they are merged into
+     * @param merger called on the owner thread with results of new chunks
+     * @param onMerged called on the Event Dispatch Thread with the value returned by the merger
+     */
+    public RecordingFollower(
+            ScheduledExecutorService owner,
+            RecordingTail tail,
+            ParallelJfrLoader.ChunkParser<R> parser,
+            Function<List<R>, V> merger,
+            Consumer<V> onMerged,
+            Consumer<Exception> onFailed
+    ) {
+        this.tail = tail;
+        this.parser = parser;
+        this.merger = merger;
+        this.onMerged = onMerged;
+        this.onFailed = onFailed;
+        this.polling = owner.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        if (closed) {
+            return;
+        }
+        try {
+            List<Chunk> chunks = tail.poll();
+            if (chunks.isEmpty()) {
+                return;
+            }
+            List<R> results = new ParallelJfrLoader().load(tail.getFileName(), chunks, parser);
+            V merged = merger.apply(results);
+            SwingUtilities.invokeLater(() -> {
+                if (!closed) {
+                    onMerged.accept(merged);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            // an exception thrown out of a scheduled task cancels it silently, so it is never let out
+            polling.cancel(false);
+            SwingUtilities.invokeLater(() -> {
+                if (!closed) {
+                    onFailed.accept(e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        polling.cancel(false);
+    }
+}
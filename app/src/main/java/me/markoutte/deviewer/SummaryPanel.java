@@ -0,0 +1,181 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer;
+
+import me.markoutte.deviewer.jfr.LoadProgress;
+import one.jfr.Chunk;
+import one.jfr.JfrReader;
+import one.jfr.RecordingSummary;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+public class SummaryPanel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    private static final int PROGRESS_SCALE = 1000;
+    private static final int REFRESH_MILLIS = 100;
+
+    private final JLabel status = new JLabel("Loading...");
+    private final JProgressBar progressBar = new JProgressBar(0, PROGRESS_SCALE);
+    private final JButton cancelButton = new JButton("Cancel");
+    private final JLabel eventCounts = new JLabel("Counting events...");
+    private Timer timer;
+    private SwingWorker<Map<String, Long>, Void> counter;
+
+    public SummaryPanel(File file, RecordingSummary summary) {
+        setLayout(new GridBagLayout());
+        StringBuilder text = new StringBuilder("<html><body>");
+        text.append("<b>%s</b><br>".formatted(file.getName()));
+        text.append("%d chunks, %s<br>".formatted(summary.chunks.size(), formatBytes(summary.bytes())));
+        if (!summary.chunks.isEmpty()) {
+            text.append("%s &ndash; %s (%s)<br>".formatted(
+                    TIME_FORMAT.format(Instant.ofEpochSecond(0, summary.startNanos())),
+                    TIME_FORMAT.format(Instant.ofEpochSecond(0, summary.endNanos())),
+                    formatDuration(Duration.ofNanos(summary.durationNanos()))
+            ));
+        }
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(4, 0, 4, 0);
+        add(new JLabel(text.toString()), gbc);
+        add(eventCounts, gbc);
+        add(status, gbc);
+        add(progressBar, gbc);
+        gbc.fill = GridBagConstraints.NONE;
+        add(cancelButton, gbc);
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+    }
+
+    /**
+     * Counts events of every type in the background, which walks all event headers of the chunks.
+     */
+    public void countEvents(File file, List<Chunk> chunks) {
+        counter = new SwingWorker<>() {
+            @Override
+            protected Map<String, Long> doInBackground() throws IOException {
+                return JfrReader.countEvents(file.getAbsolutePath(), chunks);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    showEventCounts(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    eventCounts.setText("Cannot count events: " + e.getCause().getMessage());
+                }
+            }
+        };
+        counter.execute();
+    }
+
+    // A panel is removed when the profile is shown or another load replaces it, a cancelled load
+    // never calls finish(), so the refresh timer is stopped here
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        if (timer != null) {
+            timer.stop();
+        }
+        if (counter != null) {
+            counter.cancel(true);
+        }
+    }
+
+    private void showEventCounts(Map<String, Long> counts) {
+        StringBuilder text = new StringBuilder("<html><body>");
+        text.append("%d events<br>".formatted(counts.values().stream().mapToLong(Long::longValue).sum()));
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(10)
+                .forEach(entry -> text.append("<span color=gray>%s</span> %d<br>".formatted(entry.getKey(), entry.getValue())));
+        eventCounts.setText(text.toString());
+    }
+
+    /**
+     * Shows the progress of loading until {@link #finish(String)} is called.
+     */
+    public void track(LoadProgress progress, Runnable cancel) {
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+        cancelButton.addActionListener(e -> cancel.run());
+        timer = new Timer(REFRESH_MILLIS, e -> refresh(progress));
+        timer.start();
+        refresh(progress);
+    }
+
+    public void finish(String message) {
+        if (timer != null) {
+            timer.stop();
+        }
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+        status.setText(message);
+    }
+
+    private void refresh(LoadProgress progress) {
+        LoadProgress.Stage stage = progress.getStage();
+        if (stage == LoadProgress.Stage.PARSE) {
+            long total = Math.max(1, progress.getTotalBytes());
+            progressBar.setIndeterminate(false);
+            progressBar.setValue((int) (Math.min(progress.getBytes(), total) * PROGRESS_SCALE / total));
+            status.setText("%s: %d of %d chunks, %s of %s".formatted(
+                    stage.getTitle(),
+                    progress.getChunks(),
+                    progress.getTotalChunks(),
+                    formatBytes(progress.getBytes()),
+                    formatBytes(progress.getTotalBytes())
+            ));
+        } else {
+            progressBar.setIndeterminate(true);
+            status.setText(stage.getTitle() + "...");
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return "%.1f %siB".formatted(bytes / (double) (1L << (unit * 10)), "KMGTPE".charAt(unit - 1));
+    }
+
+    private static String formatDuration(Duration duration) {
+        return "%d:%02d:%02d".formatted(duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart());
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Paints a component from square tiles that are rendered into images on background threads.
+ *
+ * The Event Dispatch Thread only draws tiles that are ready. A missing tile is drawn as a placeholder
+ * and is scheduled for rendering, the component is repainted where the tile is done. All tiles are dropped
+ * when the content key changes. When only the width changes, tiles of the previous width are stretched
+ * in place of missing ones until new tiles are rendered.
+ *
+ * Images of tiles take at most {@link #MAX_BYTES} or what the view shows at once if it is more,
+ * tiles of the previous width are no more than the view shows at once.
+ */
+class TileRenderer {
+
+    static final int TILE_SIZE = 256;
+    private static final long MAX_BYTES = 64L << 20;
+    private static final System.Logger LOGGER = System.getLogger(TileRenderer.class.getName());
+    private static final Color PLACEHOLDER = new Color(242, 242, 242);
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+            r -> {
+                Thread thread = new Thread(r, "Deviewer Tile Renderer");
+                thread.setDaemon(true);
+                return thread;
+            }
+    );
+
+    private final JComponent component;
+    // all fields are accessed on the Event Dispatch Thread only
+    private Tiles tiles = new Tiles();
+    private final Map<Long, Future<?>> pending = new HashMap<>();
+    private Tiles stale = new Tiles();
+    private Object key;
+    private int width = -1;
+    private int staleWidth;
+    private double scale;
+    private int generation;
+
+    TileRenderer(JComponent component) {
+        this.component = component;
+    }
+
+    /**
+     * Draws tiles of the area and schedules rendering of missing ones.
+     *
+     * @param key content of the tiles besides the width, the painter must paint the same image for equal keys
+     * @param painter called on background threads with graphics translated to the tile
+     */
+    void paint(Graphics2D g, Rectangle area, Object key, int width, Painter painter) {
+        double scale = g.getTransform().getScaleX();
+        if (!Objects.equals(key, this.key) || scale != this.scale) {
+            invalidate();
+            stale.clear();
+            this.key = key;
+            this.scale = scale;
+            this.width = width;
+        } else if (width != this.width) {
+            // tiles of a complete view are kept as a preview until the new width is rendered
+            if (stale.isEmpty() || pending.isEmpty()) {
+                stale = tiles;
+                stale.trim(visibleTiles());
+                staleWidth = this.width;
+                tiles = new Tiles();
+            }
+            invalidate();
+            this.width = width;
+        }
+        int fromX = Math.floorDiv(area.x, TILE_SIZE);
+        int toX = Math.floorDiv(area.x + area.width - 1, TILE_SIZE);
+        int fromY = Math.floorDiv(area.y, TILE_SIZE);
+        int toY = Math.floorDiv(area.y + area.height - 1, TILE_SIZE);
+        for (int ty = fromY; ty <= toY; ty++) {
+            for (int tx = fromX; tx <= toX; tx++) {
+                long id = id(tx, ty);
+                BufferedImage tile = tiles.get(id);
+                if (tile != null) {
+                    g.drawImage(tile, tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE, null);
+                    continue;
+                }
+                paintPlaceholder(g, tx, ty);
+                if (!pending.containsKey(id)) {
+                    pending.put(id, EXECUTOR.submit(render(id, tx, ty, painter)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all tiles and cancels rendering of those in flight.
+     */
+    void invalidate() {
+        generation++;
+        tiles.clear();
+        pending.values().forEach(future -> future.cancel(false));
+        pending.clear();
+    }
+
+    private int visibleTiles() {
+        Rectangle visible = component.getVisibleRect();
+        return (visible.width / TILE_SIZE + 2) * (visible.height / TILE_SIZE + 2);
+    }
+
+    private void paintPlaceholder(Graphics2D g, int tx, int ty) {
+        g.setColor(PLACEHOLDER);
+        g.fillRect(tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+        if (stale.isEmpty() || staleWidth <= 0) {
+            return;
+        }
+        double stretch = width / (double) staleWidth;
+        int from = (int) Math.floor(tx * TILE_SIZE / stretch / TILE_SIZE);
+        int to = (int) Math.floor((tx + 1) * TILE_SIZE / stretch / TILE_SIZE);
+        Graphics2D tg = (Graphics2D) g.create(tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+        tg.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for (int sx = from; sx <= to; sx++) {
+            BufferedImage tile = stale.get(id(sx, ty));
+            if (tile != null) {
+                int x = (int) Math.round(sx * TILE_SIZE * stretch) - tx * TILE_SIZE;
+                int w = (int) Math.round((sx + 1) * TILE_SIZE * stretch) - tx * TILE_SIZE - x;
+                tg.drawImage(tile, x, 0, w, TILE_SIZE, null);
+            }
+        }
+        tg.dispose();
+    }
+
+    private Runnable render(long id, int tx, int ty, Painter painter) {
+        int generation = this.generation;
+        double scale = this.scale;
+        return () -> {
+            int size = (int) Math.ceil(TILE_SIZE * scale);
+            BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = tile.createGraphics();
+            try {
+                g.scale(scale, scale);
+                g.translate(-tx * TILE_SIZE, -ty * TILE_SIZE);
+                Rectangle area = new Rectangle(tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+                g.setClip(area);
+                painter.paint(g, area);
+            } catch (RuntimeException | Error e) {
+                // a half-painted tile is never cached, the tile is rendered again on the next paint
+                LOGGER.log(System.Logger.Level.ERROR, "Cannot render tile " + tx + ", " + ty, e);
+                SwingUtilities.invokeLater(() -> failed(id, generation));
+                throw e;
+            } finally {
+                g.dispose();
+            }
+            SwingUtilities.invokeLater(() -> done(id, tx, ty, generation, tile));
+        };
+    }
+
+    private void failed(long id, int generation) {
+        if (generation == this.generation) {
+            pending.remove(id);
+        }
+    }
+
+    private void done(long id, int tx, int ty, int generation, BufferedImage tile) {
+        if (generation != this.generation) {
+            return;
+        }
+        pending.remove(id);
+        long viewBytes = visibleTiles() * Tiles.bytes(tile);
+        tiles.put(id, tile, Math.max(MAX_BYTES, viewBytes));
+        if (pending.isEmpty()) {
+            stale.clear();
+        }
+        component.repaint(tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    }
+
+    private static long id(int tx, int ty) {
+        return (long) tx << 32 | (ty & 0xFFFFFFFFL);
+    }
+
+    // Images of tiles by id, least recently drawn ones are dropped first when they take more than the budget
+    private static class Tiles {
+        private final LinkedHashMap<Long, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        BufferedImage get(long id) {
+            return images.get(id);
+        }
+
+        void put(long id, BufferedImage image, long maxBytes) {
+            BufferedImage previous = images.put(id, image);
+            bytes += bytes(image) - (previous != null ? bytes(previous) : 0);
+            while (bytes > maxBytes && images.size() > 1) {
+                remove();
+            }
+        }
+
+        void trim(int count) {
+            while (images.size() > count) {
+                remove();
+            }
+        }
+
+        boolean isEmpty() {
+            return images.isEmpty();
+        }
+
+        void clear() {
+            images.clear();
+            bytes = 0;
+        }
+
+        private void remove() {
+            Iterator<BufferedImage> eldest = images.values().iterator();
+            bytes -= bytes(eldest.next());
+            eldest.remove();
+        }
+
+        static long bytes(BufferedImage image) {
+            return (long) image.getWidth() * image.getHeight() * 4;
+        }
+    }
+
+    interface Painter {
+        void paint(Graphics2D g, Rectangle area);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer;
+
+import me.markoutte.deviewer.jfr.TimeRange;
+import one.jfr.RecordingSummary;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+public class TimeRangeDialog {
+
+    private static final String TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    /**
+     * Asks for a part of the recording to be loaded.
+     *
+     * @return selected range or null if the dialog is cancelled
+     */
+    public static TimeRange ask(Component parent, RecordingSummary summary) {
+        Date start = new Date(TimeUnit.NANOSECONDS.toMillis(summary.startNanos()));
+        Date end = new Date(TimeUnit.NANOSECONDS.toMillis(summary.endNanos()) + 1);
+        JSpinner from = spinner(start, start, end);
+        JSpinner to = spinner(end, start, end);
+
+        JPanel panel = new JPanel(new GridLayout(2, 2, 8, 8));
+        panel.add(new JLabel("From:"));
+        panel.add(from);
+        panel.add(new JLabel("To:"));
+        panel.add(to);
+        if (JOptionPane.showConfirmDialog(parent, panel, "Open Range", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return null;
+        }
+        long fromMillis = ((Date) from.getValue()).getTime();
+        long toMillis = ((Date) to.getValue()).getTime();
+        if (fromMillis >= toMillis) {
+            JOptionPane.showMessageDialog(parent, "The range is empty", "Open Range", JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        return new TimeRange(TimeUnit.MILLISECONDS.toNanos(fromMillis), TimeUnit.MILLISECONDS.toNanos(toMillis));
+    }
+
+    private static JSpinner spinner(Date value, Date min, Date max) {
+        JSpinner spinner = new JSpinner(new SpinnerDateModel(value, min, max, Calendar.SECOND));
+        spinner.setEditor(new JSpinner.DateEditor(spinner, TIME_PATTERN));
+        return spinner;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.event.Event;
+import one.jfr.event.EventCursor;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Columnar storage of events: every event type keeps its fields in growable primitive arrays,
+ * so no object is kept per event and filtering by time or thread is a plain array scan.
+ */
+public class EventStore {
+
+    private final Map<Class<? extends Event>, Columns> columns = new LinkedHashMap<>();
+    private Class<? extends Event> lastType;
+    private Columns last;
+
+    public void add(EventCursor cursor) {
+        if (cursor.type != lastType) {
+            lastType = cursor.type;
+            last = columns.computeIfAbsent(cursor.type, type -> new Columns());
+        }
+        last.add(cursor.time, cursor.tid, cursor.stackTraceId, cursor.value(), cursor.classId);
+    }
+
+    public Columns get(Class<? extends Event> type) {
+        return columns.getOrDefault(type, Columns.EMPTY);
+    }
+
+    public static class Columns {
+
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final Columns EMPTY = new Columns(0);
+
+        private long[] time;
+        private int[] tid;
+        private int[] stackTraceId;
+        private long[] value;
+        private int[] classId;
+        private int size;
+
+        private Columns() {
+            this(INITIAL_CAPACITY);
+        }
+
+        private Columns(int capacity) {
+            time = new long[capacity];
+            tid = new int[capacity];
+            stackTraceId = new int[capacity];
+            value = new long[capacity];
+            classId = new int[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long time(int row) {
+            return time[row];
+        }
+
+        public int tid(int row) {
+            return tid[row];
+        }
+
+        public int stackTraceId(int row) {
+            return stackTraceId[row];
+        }
+
+        // Sample count of execution samples, allocated bytes, lock wait time or malloc size
+        public long value(int row) {
+            return value[row];
+        }
+
+        public int classId(int row) {
+            return classId[row];
+        }
+
+        /**
+         * Visits rows with time in [fromTime, toTime) of the threads accepted by the filter.
+         */
+        public void forEach(long fromTime, long toTime, IntPredicate threads, IntConsumer visitor) {
+            for (int row = 0; row < size; row++) {
+                long t = time[row];
+                if (t >= fromTime && t < toTime && threads.test(tid[row])) {
+                    visitor.accept(row);
+                }
+            }
+        }
+
+        private void add(long time, int tid, int stackTraceId, long value, int classId) {
+            if (size == this.time.length) {
+                grow(Math.max(INITIAL_CAPACITY, size * 2));
+            }
+            this.time[size] = time;
+            this.tid[size] = tid;
+            this.stackTraceId[size] = stackTraceId;
+            this.value[size] = value;
+            this.classId[size] = classId;
+            size++;
+        }
+
+        private void grow(int capacity) {
+            time = Arrays.copyOf(time, capacity);
+            tid = Arrays.copyOf(tid, capacity);
+            stackTraceId = Arrays.copyOf(stackTraceId, capacity);
+            value = Arrays.copyOf(value, capacity);
+            classId = Arrays.copyOf(classId, capacity);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.Dictionary;
+import one.jfr.DictionaryInt;
+import one.jfr.JfrReader;
+import one.jfr.StackTrace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static me.markoutte.deviewer.utils.Jvm.jvmNameToCanonical;
+
+/**
+ * Dense ids of distinct stack frames of a recording.
+ *
+ * Method ids are local to a chunk, so each chunk resolves (methodId, type) pairs through its own {@link ChunkFrames}.
+ * A StackFrame is decoded once per distinct pair of a chunk and is interned by content across chunks.
+ */
+public class FrameTable {
+
+    private final Map<StackFrame, Integer> ids = new HashMap<>();
+    private final List<StackFrame> frames = new ArrayList<>();
+
+    public synchronized int intern(StackFrame frame) {
+        Integer id = ids.get(frame);
+        if (id == null) {
+            id = frames.size();
+            frames.add(frame);
+            ids.put(frame, id);
+        }
+        return id;
+    }
+
+    public synchronized StackFrame get(int frameId) {
+        return frames.get(frameId);
+    }
+
+    public synchronized int size() {
+        return frames.size();
+    }
+
+    public ChunkFrames forChunk(JfrReader reader) {
+        return new ChunkFrames(reader);
+    }
+
+    /**
+     * Frame ids of a single chunk. Not thread-safe, like the reader itself.
+     */
+    public class ChunkFrames {
+        private final JfrReader reader;
+        private final DictionaryInt frameIds = new DictionaryInt();
+        private final Dictionary<int[]> stackTraces = new Dictionary<>();
+
+        private ChunkFrames(JfrReader reader) {
+            this.reader = reader;
+        }
+
+        public int frameId(long methodId, byte type) {
+            // zero key is reserved by the dictionary
+            long key = (methodId + 1) << 3 | type;
+            int id = frameIds.get(key, -1);
+            if (id < 0) {
+                id = intern(decode(methodId, StackFrameType.values()[type]));
+                frameIds.put(key, id);
+            }
+            return id;
+        }
+
+        /**
+         * @return frame ids of the stack trace from the outermost frame to the innermost one
+         */
+        public int[] stackTrace(int stackTraceId) {
+            int[] result = stackTraces.get(stackTraceId);
+            if (result == null) {
+                StackTrace stackTrace = reader.stackTraces.get(stackTraceId);
+                int length = stackTrace.methods.length;
+                result = new int[length];
+                for (int i = 0; i < length; i++) {
+                    result[length - 1 - i] = frameId(stackTrace.methods[i], stackTrace.types[i]);
+                }
+                stackTraces.put(stackTraceId, result);
+            }
+            return result;
+        }
+
+        private StackFrame decode(long method, StackFrameType type) {
+            var methodRef = reader.methods.get(method);
+            var cls = reader.classes.get(methodRef.cls);
+            List<String> parameters = jvmNameToCanonical(new String(reader.symbols.get(methodRef.sig)));
+            String returnValue = parameters.remove(parameters.size() - 1);
+            return new StackFrame(
+                    Optional.ofNullable(reader.symbols.get(cls.name))
+                            .filter(bytes -> bytes.length > 0)
+                            .map(String::new)
+                            .map(s -> s.replace('/', '.'))
+                            .orElse(null),
+                    new String(reader.symbols.get(methodRef.name)),
+                    parameters,
+                    returnValue,
+                    type
+            );
+        }
+    }
+}
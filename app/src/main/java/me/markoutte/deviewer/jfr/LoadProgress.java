@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.Chunk;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of loading a set of chunks, shared by all parsing workers.
+ *
+ * Workers report processed bytes and check for cancellation, the UI polls the counters.
+ */
+public class LoadProgress {
+
+    public enum Stage {
+        PARSE("Parsing"),
+        AGGREGATE("Aggregating"),
+        LAYOUT("Building views");
+
+        private final String title;
+
+        Stage(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    private final int totalChunks;
+    private final long totalBytes;
+    private final AtomicInteger chunks = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile Stage stage = Stage.PARSE;
+    private volatile boolean cancelled;
+
+    public LoadProgress(List<Chunk> chunks) {
+        this.totalChunks = chunks.size();
+        this.totalBytes = chunks.stream().mapToLong(chunk -> chunk.size).sum();
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public int getChunks() {
+        return chunks.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public void setStage(Stage stage) {
+        this.stage = stage;
+    }
+
+    public void addBytes(long delta) {
+        bytes.addAndGet(delta);
+    }
+
+    public void chunkDone() {
+        chunks.incrementAndGet();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if loading is cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Loading is cancelled");
+        }
+    }
+}
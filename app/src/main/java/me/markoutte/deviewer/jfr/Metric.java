@@ -0,0 +1,63 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.event.AllocationSample;
+import one.jfr.event.ContendedLock;
+import one.jfr.event.Event;
+import one.jfr.event.ExecutionSample;
+import one.jfr.event.WallClockSample;
+
+/**
+ * Weights collected for every call tree node in one parsing pass, the ordinal is the metric index of the tree.
+ *
+ * Wall clock samples are kept apart from execution samples, they sample threads in any state,
+ * so a sum of both would mean neither.
+ */
+public enum Metric {
+
+    SAMPLES("Samples", ExecutionSample.class, false),
+    WALL_CLOCK("Wall Clock Samples", WallClockSample.class, false),
+    ALLOCATED_BYTES("Allocated Bytes", AllocationSample.class, false),
+    LOCK_WAIT("Lock Wait, ns", ContendedLock.class, true);
+
+    private final String title;
+    private final Class<? extends Event> event;
+    private final boolean ticks;
+
+    Metric(String title, Class<? extends Event> event, boolean ticks) {
+        this.title = title;
+        this.event = event;
+        this.ticks = ticks;
+    }
+
+    public Class<? extends Event> event() {
+        return event;
+    }
+
+    /**
+     * @return true if values of the metric are durations in chunk ticks
+     */
+    public boolean isTicks() {
+        return ticks;
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.Chunk;
+import one.jfr.JfrReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses chunks of a JFR recording in parallel.
+ *
+ * Every chunk is self-contained, so each one gets its own JfrReader with its own dictionaries
+ * and is parsed on a separate worker. Results are returned in the chunk order.
+ */
+public class ParallelJfrLoader {
+
+    private final ForkJoinPool pool;
+
+    public ParallelJfrLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelJfrLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public <R> List<R> load(String fileName, List<Chunk> chunks, ChunkParser<R> parser) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            List<ForkJoinTask<R>> tasks = new ArrayList<>(chunks.size());
+            for (Chunk chunk : chunks) {
+                tasks.add(pool.submit(() -> {
+                    try (JfrReader reader = open(fileName, ch, chunk)) {
+                        return parser.parse(chunk, reader);
+                    }
+                }));
+            }
+            List<R> results = new ArrayList<>(tasks.size());
+            try {
+                for (ForkJoinTask<R> task : tasks) {
+                    results.add(task.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Loading is interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                for (ForkJoinTask<R> task : tasks) {
+                    task.cancel(false);
+                }
+            }
+            return results;
+        }
+    }
+
+    // A chunk that does not fit a single buffer is read through mapped windows of its own channel
+    private static JfrReader open(String fileName, FileChannel ch, Chunk chunk) throws IOException {
+        if (chunk.size > Integer.MAX_VALUE) {
+            return new JfrReader(fileName, chunk);
+        }
+        return new JfrReader(map(ch, chunk), true);
+    }
+
+    private static ByteBuffer map(FileChannel ch, Chunk chunk) throws IOException {
+        try {
+            return ch.map(FileChannel.MapMode.READ_ONLY, chunk.offset, chunk.size);
+        } catch (UnsupportedOperationException e) {
+            ByteBuffer buf = ByteBuffer.allocate((int) chunk.size);
+            while (buf.hasRemaining() && ch.read(buf, chunk.offset + buf.position()) > 0) {
+                // keep reading
+            }
+            return buf.flip();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ChunkParser<R> {
+        R parse(Chunk chunk, JfrReader reader) throws IOException;
+    }
+}
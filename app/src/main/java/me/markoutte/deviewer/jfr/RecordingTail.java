@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.Chunk;
+import one.jfr.JfrReader;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tracks chunks of a recording that is still being written.
+ *
+ * Every poll returns chunks completed since the previous one, the chunk being written is left for later polls.
+ */
+public class RecordingTail {
+
+    private final String fileName;
+    private long offset;
+
+    public RecordingTail(String fileName, long offset) {
+        this.fileName = fileName;
+        this.offset = offset;
+    }
+
+    public static RecordingTail after(String fileName, List<Chunk> chunks) {
+        Chunk last = chunks.get(chunks.size() - 1);
+        return new RecordingTail(fileName, last.offset + last.size);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    public synchronized List<Chunk> poll() throws IOException {
+        List<Chunk> chunks = JfrReader.readChunks(fileName, offset);
+        if (!chunks.isEmpty()) {
+            Chunk last = chunks.get(chunks.size() - 1);
+            offset = last.offset + last.size;
+        }
+        return chunks;
+    }
+}
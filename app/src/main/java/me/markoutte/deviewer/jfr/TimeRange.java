@@ -0,0 +1,43 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.Chunk;
+
+import java.util.List;
+
+/**
+ * Wall clock interval [startNanos, endNanos) of a recording to be loaded.
+ *
+ * Chunks outside the interval are not read at all, events are filtered by time only in boundary chunks.
+ */
+public record TimeRange(long startNanos, long endNanos) {
+
+    public static final TimeRange ALL = new TimeRange(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    public List<Chunk> select(List<Chunk> chunks) {
+        return chunks.stream().filter(chunk -> chunk.overlaps(startNanos, endNanos)).toList();
+    }
+
+    public long startTicks(Chunk chunk) {
+        return startNanos <= chunk.startNanos ? Long.MIN_VALUE : chunk.nanosToTicks(startNanos);
+    }
+
+    public long endTicks(Chunk chunk) {
+        return endNanos >= chunk.endNanos() ? Long.MAX_VALUE : chunk.nanosToTicks(endNanos);
+    }
+}
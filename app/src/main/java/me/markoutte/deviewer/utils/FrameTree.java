@@ -0,0 +1,502 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Compact call tree of frame ids.
+ *
+ * Nodes are plain int indices into parallel primitive arrays, children of a node are linked through
+ * the first child and next sibling indices. A child is found by (parent, frame) in a single open-addressing
+ * table of node indices, so the tree has no per-node objects at all. Node {@link #ROOT} is created with the tree.
+ *
+ * Every node has a column of 64-bit weights per metric: total weight of all paths going through it
+ * and self weight of paths ending in it. Metrics are plain indices, their meaning is up to the caller.
+ * Columns of a metric are allocated with its first non-zero weight, so metrics missing from a recording
+ * take no memory.
+ *
+ * Views read the tree through its {@link #freeze(int) frozen} layouts, which are cached per metric
+ * until the tree is changed.
+ */
+public class FrameTree {
+
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int EMPTY = -1;
+
+    private int[] frame = new int[INITIAL_CAPACITY];
+    private int[] parent = new int[INITIAL_CAPACITY];
+    private int[] firstChild = new int[INITIAL_CAPACITY];
+    private int[] nextSibling = new int[INITIAL_CAPACITY];
+    // columns of a metric are null until it gets a weight
+    private final long[][] total;
+    private final long[][] self;
+    private int[] index = newIndex(INITIAL_CAPACITY * 2);
+    private int size;
+
+    private final FrozenTree[] frozen;
+
+    public FrameTree(int rootFrame) {
+        this(rootFrame, 1);
+    }
+
+    public FrameTree(int rootFrame, int metrics) {
+        if (metrics <= 0) {
+            throw new IllegalArgumentException("At least one metric is required: " + metrics);
+        }
+        total = new long[metrics][];
+        self = new long[metrics][];
+        frozen = new FrozenTree[metrics];
+        newNode(NONE, rootFrame);
+    }
+
+    /**
+     * Adds a path of frames starting below the root with the weight of the first metric.
+     *
+     * @return node of the last frame in the path
+     */
+    public int add(int[] frames, long weight) {
+        return add(frames, 0, weight);
+    }
+
+    /**
+     * Adds a path of frames starting below the root with the weight of the metric.
+     *
+     * @return node of the last frame in the path
+     */
+    public int add(int[] frames, int metric, long weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight should be positive: " + weight);
+        }
+        invalidate();
+        int node = ROOT;
+        for (int f : frames) {
+            int child = find(node, f);
+            node = child != NONE ? child : newNode(node, f);
+        }
+        allocate(metric);
+        for (int n = node; n != NONE; n = parent[n]) {
+            total[metric][n] += weight;
+        }
+        self[metric][node] += weight;
+        return node;
+    }
+
+    /**
+     * Adds a path of frames starting below the root with weights of all metrics at once, zero weights are allowed.
+     *
+     * @return node of the last frame in the path
+     */
+    public int add(int[] frames, long[] weights) {
+        if (weights.length != total.length) {
+            throw new IllegalArgumentException("Expected " + total.length + " weights, got " + weights.length);
+        }
+        for (long weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight should not be negative: " + weight);
+            }
+        }
+        invalidate();
+        int node = ROOT;
+        for (int f : frames) {
+            int child = find(node, f);
+            node = child != NONE ? child : newNode(node, f);
+        }
+        for (int m = 0; m < weights.length; m++) {
+            if (weights[m] == 0) {
+                continue;
+            }
+            allocate(m);
+            for (int n = node; n != NONE; n = parent[n]) {
+                total[m][n] += weights[m];
+            }
+            self[m][node] += weights[m];
+        }
+        return node;
+    }
+
+    private void allocate(int metric) {
+        if (total[metric] == null) {
+            total[metric] = new long[frame.length];
+            self[metric] = new long[frame.length];
+        }
+    }
+
+    /**
+     * Adds all paths of the other tree with their weights, the other tree is not changed.
+     *
+     * Nodes of the other tree are visited in the order they were created, so new children are created
+     * in the same order as if the other tree's stacks were added to this tree directly.
+     */
+    public void merge(FrameTree other) {
+        if (other.frame[ROOT] != frame[ROOT]) {
+            throw new IllegalArgumentException("Trees have different root frames: " + frame[ROOT] + " and " + other.frame[ROOT]);
+        }
+        if (other.total.length != total.length) {
+            throw new IllegalArgumentException("Trees have different metrics: " + total.length + " and " + other.total.length);
+        }
+        invalidate();
+        for (int m = 0; m < total.length; m++) {
+            if (other.total[m] != null) {
+                allocate(m);
+            }
+        }
+        int[] mapped = new int[other.size];
+        mapped[ROOT] = ROOT;
+        mergeWeights(ROOT, other, ROOT);
+        // parent is always created before its children, so it is already mapped
+        for (int node = ROOT + 1; node < other.size; node++) {
+            int p = mapped[other.parent[node]];
+            int f = other.frame[node];
+            int target = find(p, f);
+            if (target == NONE) {
+                target = newNode(p, f);
+            }
+            mergeWeights(target, other, node);
+            mapped[node] = target;
+        }
+    }
+
+    private void mergeWeights(int node, FrameTree other, int otherNode) {
+        for (int m = 0; m < total.length; m++) {
+            if (other.total[m] != null) {
+                total[m][node] += other.total[m][otherNode];
+                self[m][node] += other.self[m][otherNode];
+            }
+        }
+    }
+
+    /**
+     * Merges partial trees pairwise in parallel. Trees are merged in the list order, so the result is the same
+     * as if all stacks were added to the first tree one by one. Trees of the list are reused and must not be used after.
+     */
+    public static FrameTree merge(List<FrameTree> trees, ForkJoinPool pool) {
+        if (trees.isEmpty()) {
+            throw new IllegalArgumentException("No trees to merge");
+        }
+        return pool.invoke(new MergeTask(trees, 0, trees.size()));
+    }
+
+    /**
+     * @return child of the node with the given frame or {@link #NONE}
+     */
+    public int find(int node, int frame) {
+        int mask = index.length - 1;
+        for (int i = hash(node, frame) & mask; ; i = (i + 1) & mask) {
+            int candidate = index[i];
+            if (candidate == EMPTY) {
+                return NONE;
+            }
+            if (parent[candidate] == node && this.frame[candidate] == frame) {
+                return candidate;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int frame(int node) {
+        return frame[node];
+    }
+
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int metrics() {
+        return total.length;
+    }
+
+    public long total(int metric, int node) {
+        return total[metric] != null ? total[metric][node] : 0;
+    }
+
+    public long self(int metric, int node) {
+        return self[metric] != null ? self[metric][node] : 0;
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    public boolean isLeaf(int node) {
+        return firstChild[node] == NONE;
+    }
+
+    private void invalidate() {
+        Arrays.fill(frozen, null);
+    }
+
+    /**
+     * Lays the tree out for the metric in depth-first order with children sorted heaviest first,
+     * nodes without weight of the metric are left out. The result is cached until the tree is changed.
+     */
+    public FrozenTree freeze(int metric) {
+        if (frozen[metric] != null) {
+            return frozen[metric];
+        }
+        long[] total = column(this.total, metric);
+        // children with weight in index space, a range per node
+        int[] offset = new int[size + 1];
+        for (int node = ROOT + 1; node < size; node++) {
+            if (total[node] > 0) {
+                offset[parent[node] + 1]++;
+            }
+        }
+        for (int node = 0; node < size; node++) {
+            offset[node + 1] += offset[node];
+        }
+        int[] children = new int[offset[size]];
+        int[] filled = Arrays.copyOf(offset, size);
+        for (int node = ROOT + 1; node < size; node++) {
+            if (total[node] > 0) {
+                children[filled[parent[node]]++] = node;
+            }
+        }
+        for (int node = 0; node < size; node++) {
+            sortByWeight(children, offset[node], offset[node + 1], total);
+        }
+
+        int count = children.length + 1;
+        int[] order = new int[count];
+        int[] position = new int[size];
+        int[] stack = new int[count];
+        int top = 0;
+        int visited = 0;
+        stack[top++] = ROOT;
+        while (top > 0) {
+            int node = stack[--top];
+            position[node] = visited;
+            order[visited++] = node;
+            for (int i = offset[node + 1] - 1; i >= offset[node]; i--) {
+                stack[top++] = children[i];
+            }
+        }
+
+        long[] self = column(this.self, metric);
+        int[] newFrame = new int[count];
+        int[] newParent = new int[count];
+        long[] newTotal = new long[count];
+        long[] newSelf = new long[count];
+        int[] newEnd = new int[count];
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            newFrame[i] = frame[node];
+            newParent[i] = parent[node] == NONE ? NONE : position[parent[node]];
+            newTotal[i] = total[node];
+            newSelf[i] = self[node];
+            newEnd[i] = i + 1;
+        }
+        // parents precede children, so subtree ends are collected from the last node backwards
+        for (int i = count - 1; i > ROOT; i--) {
+            newEnd[newParent[i]] = Math.max(newEnd[newParent[i]], newEnd[i]);
+        }
+        frozen[metric] = new FrozenTree(newFrame, newParent, newTotal, newSelf, newEnd);
+        return frozen[metric];
+    }
+
+    // Weights of a metric without any weight yet are read as zeros
+    private long[] column(long[][] columns, int metric) {
+        return columns[metric] != null ? columns[metric] : new long[size];
+    }
+
+    // Heaviest first, the later created node goes first among equal ones
+    private static void sortByWeight(int[] nodes, int from, int to, long[] weight) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int node = nodes[i];
+                int j = i - 1;
+                while (j >= from && before(node, nodes[j], weight)) {
+                    nodes[j + 1] = nodes[j];
+                    j--;
+                }
+                nodes[j + 1] = node;
+            }
+            return;
+        }
+        Integer[] boxed = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            boxed[i - from] = nodes[i];
+        }
+        Arrays.sort(boxed, (a, b) -> before(a, b, weight) ? -1 : before(b, a, weight) ? 1 : 0);
+        for (int i = from; i < to; i++) {
+            nodes[i] = boxed[i - from];
+        }
+    }
+
+    private static boolean before(int a, int b, long[] weight) {
+        return weight[a] != weight[b] ? weight[a] > weight[b] : a > b;
+    }
+
+    /**
+     * Releases the spare capacity, the tree can still grow later.
+     */
+    public void trim() {
+        if (size < frame.length) {
+            grow(size);
+        }
+    }
+
+    private int newNode(int parentNode, int frameId) {
+        if (size == frame.length) {
+            grow(size + (size >> 1) + 1);
+        }
+        int node = size++;
+        frame[node] = frameId;
+        parent[node] = parentNode;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        if (parentNode != NONE) {
+            nextSibling[node] = firstChild[parentNode];
+            firstChild[parentNode] = node;
+            if (size * 4 > index.length * 3) {
+                rehash(index.length * 2);
+            } else {
+                insert(index, node);
+            }
+        }
+        return node;
+    }
+
+    private void insert(int[] table, int node) {
+        int mask = table.length - 1;
+        int i = hash(parent[node], frame[node]) & mask;
+        while (table[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        table[i] = node;
+    }
+
+    private void rehash(int capacity) {
+        int[] table = newIndex(capacity);
+        for (int node = ROOT + 1; node < size; node++) {
+            insert(table, node);
+        }
+        index = table;
+    }
+
+    private void grow(int capacity) {
+        frame = Arrays.copyOf(frame, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        for (int m = 0; m < total.length; m++) {
+            if (total[m] != null) {
+                total[m] = Arrays.copyOf(total[m], capacity);
+                self[m] = Arrays.copyOf(self[m], capacity);
+            }
+        }
+    }
+
+    private static int[] newIndex(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(int node, int frame) {
+        long key = ((long) node << 32 | frame) * 0xc6a4a7935bd1e995L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Weights of frames summed over all nodes of the tree, indexed by frame id, see {@link FrozenTree#rollup()}.
+     */
+    public static class Rollup {
+        final long[] self;
+        final long[] total;
+        final long[] inclusive;
+
+        Rollup(int frames) {
+            this.self = new long[frames];
+            this.total = new long[frames];
+            this.inclusive = new long[frames];
+        }
+
+        public int frames() {
+            return self.length;
+        }
+
+        /**
+         * @return weight of paths ending in the frame
+         */
+        public long self(int frame) {
+            return frame < self.length ? self[frame] : 0;
+        }
+
+        /**
+         * @return sum of total weights of the frame's nodes, recursive calls are counted once per level
+         */
+        public long total(int frame) {
+            return frame < total.length ? total[frame] : 0;
+        }
+
+        /**
+         * @return weight of paths with the frame anywhere in them, each path is counted once even in recursion
+         */
+        public long inclusive(int frame) {
+            return frame < inclusive.length ? inclusive[frame] : 0;
+        }
+    }
+
+    private static class MergeTask extends RecursiveTask<FrameTree> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<FrameTree> trees;
+        private final int from;
+        private final int to;
+
+        MergeTask(List<FrameTree> trees, int from, int to) {
+            this.trees = trees;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected FrameTree compute() {
+            if (to - from == 1) {
+                return trees.get(from);
+            }
+            int middle = (from + to) >>> 1;
+            MergeTask right = new MergeTask(trees, middle, to);
+            right.fork();
+            FrameTree left = new MergeTask(trees, from, middle).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+}
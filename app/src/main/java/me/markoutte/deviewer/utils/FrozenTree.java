@@ -0,0 +1,182 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.utils;
+
+import java.util.Arrays;
+
+/**
+ * Immutable call tree of a single metric laid out for reading.
+ *
+ * Nodes are numbered in depth-first order with children visited heaviest first, so a subtree of a node
+ * is the index interval [node, {@link #end(int)}) and children of a node have increasing indices.
+ * Children of every node are also stored contiguously, so the n-th child is found without walking siblings.
+ * Siblings are sorted once when the tree is frozen, views never sort children on their own.
+ *
+ * Node {@link #ROOT} is the root, a tree is created by {@link FrameTree#freeze(int)}.
+ */
+public class FrozenTree {
+
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    private final int[] frame;
+    private final int[] parent;
+    private final long[] total;
+    private final long[] self;
+    private final int[] end;
+    private final int[] childOffset;
+    private final int[] children;
+
+    FrozenTree(int[] frame, int[] parent, long[] total, long[] self, int[] end) {
+        int size = frame.length;
+        this.frame = frame;
+        this.parent = parent;
+        this.total = total;
+        this.self = self;
+        this.end = end;
+        this.childOffset = new int[size + 1];
+        this.children = new int[Math.max(size - 1, 0)];
+        for (int node = ROOT + 1; node < size; node++) {
+            childOffset[parent[node] + 1]++;
+        }
+        for (int node = 0; node < size; node++) {
+            childOffset[node + 1] += childOffset[node];
+        }
+        // nodes go in depth-first order, so children of every node are filled in their order
+        int[] filled = Arrays.copyOf(childOffset, size);
+        for (int node = ROOT + 1; node < size; node++) {
+            children[filled[parent[node]]++] = node;
+        }
+    }
+
+    public int size() {
+        return frame.length;
+    }
+
+    public int frame(int node) {
+        return frame[node];
+    }
+
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    public long total(int node) {
+        return total[node];
+    }
+
+    public long self(int node) {
+        return self[node];
+    }
+
+    /**
+     * @return index after the last node of the subtree
+     */
+    public int end(int node) {
+        return end[node];
+    }
+
+    public boolean isLeaf(int node) {
+        return end[node] == node + 1;
+    }
+
+    public int childCount(int node) {
+        return childOffset[node + 1] - childOffset[node];
+    }
+
+    /**
+     * @return child of the node at the position, children go heaviest first
+     */
+    public int child(int node, int index) {
+        if (index < 0 || index >= childCount(node)) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return children[childOffset[node] + index];
+    }
+
+    /**
+     * @return position of the child among children of the node or -1 if it is not a child of the node
+     */
+    public int indexOfChild(int node, int child) {
+        if (child <= ROOT || child >= frame.length || parent[child] != node) {
+            return -1;
+        }
+        return Arrays.binarySearch(children, childOffset[node], childOffset[node + 1], child) - childOffset[node];
+    }
+
+    /**
+     * @return child of the node with the given frame or {@link #NONE}
+     */
+    public int find(int node, int frame) {
+        for (int i = childOffset[node]; i < childOffset[node + 1]; i++) {
+            if (this.frame[children[i]] == frame) {
+                return children[i];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return depth of the node, the root has depth 0
+     */
+    public int depth(int node) {
+        int depth = 0;
+        for (int p = parent[node]; p != NONE; p = parent[p]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Sums weights of all nodes by frame.
+     */
+    public FrameTree.Rollup rollup() {
+        return rollup(ROOT);
+    }
+
+    /**
+     * Sums weights by frame for the subtree of the node, which is a single scan over its index interval.
+     */
+    public FrameTree.Rollup rollup(int node) {
+        int frames = 0;
+        for (int i = node; i < end[node]; i++) {
+            frames = Math.max(frames, frame[i] + 1);
+        }
+        FrameTree.Rollup rollup = new FrameTree.Rollup(frames);
+        // number of nodes with the frame on the path from the subtree root to the current node
+        int[] active = new int[frames];
+        // nodes on that path, a node is left when the scan passes the end of its subtree
+        int[] open = new int[16];
+        int depth = 0;
+        for (int i = node; i < end[node]; i++) {
+            while (depth > 0 && end[open[depth - 1]] <= i) {
+                active[frame[open[--depth]]]--;
+            }
+            int f = frame[i];
+            rollup.self[f] += self[i];
+            rollup.total[f] += total[i];
+            if (active[f]++ == 0) {
+                rollup.inclusive[f] += total[i];
+            }
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+            }
+            open[depth++] = i;
+        }
+        return rollup;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Header of a single self-contained chunk of a JFR recording.
+ */
+public class Chunk {
+    public final long offset;
+    public final long size;
+    public final long cpOffset;
+    public final long metaOffset;
+    public final long startNanos;
+    public final long durationNanos;
+    public final long startTicks;
+    public final long ticksPerSec;
+
+    Chunk(long offset, ByteBuffer buf, int pos) {
+        this.offset = offset;
+        this.size = buf.getLong(pos + 8);
+        this.cpOffset = buf.getLong(pos + 16);
+        this.metaOffset = buf.getLong(pos + 24);
+        this.startNanos = buf.getLong(pos + 32);
+        this.durationNanos = buf.getLong(pos + 40);
+        this.startTicks = buf.getLong(pos + 48);
+        this.ticksPerSec = buf.getLong(pos + 56);
+    }
+
+    public long endNanos() {
+        return startNanos + durationNanos;
+    }
+
+    public boolean overlaps(long fromNanos, long toNanos) {
+        return startNanos < toNanos && endNanos() > fromNanos;
+    }
+
+    // Event timestamps of the chunk are in ticks. Returns the first tick not earlier than the given time,
+    // so events in [from, to) are exactly those with ticks in [nanosToTicks(from), nanosToTicks(to))
+    public long nanosToTicks(long nanos) {
+        long delta = nanos - startNanos;
+        long seconds = Math.floorDiv(delta, 1_000_000_000L);
+        long rest = Math.floorMod(delta, 1_000_000_000L);
+        return startTicks + seconds * ticksPerSec + (rest * ticksPerSec + 999_999_999L) / 1_000_000_000L;
+    }
+
+    // Event durations of the chunk are in ticks too
+    public long ticksToNanos(long ticks) {
+        return (long) (ticks * (1e9 / ticksPerSec));
+    }
+
+    // The chunk is being written when its size or offsets are not yet patched into the header
+    boolean isComplete(long fileSize) {
+        return size > 0 && offset + size <= fileSize && cpOffset != 0 && metaOffset != 0;
+    }
+}
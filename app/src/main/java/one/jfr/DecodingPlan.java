@@ -0,0 +1,275 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import one.jfr.event.GenericEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decoding program for events of one type, compiled from the chunk metadata.
+ * Fields that are not requested are skipped without being decoded,
+ * and nothing is read after the last requested field.
+ */
+public class DecodingPlan {
+    private static final int MAX_NESTING = 16;
+
+    private static final byte VARLONG = 0;
+    private static final byte BYTE = 1;
+    private static final byte FLOAT = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte STRING = 4;
+    private static final byte CONSTANT_REF = 5;
+    private static final byte ARRAY = 6;
+
+    private final String name;
+    private final String[] fields;
+    private final boolean[] floating;
+    private final boolean hasStrings;
+    private final byte[] ops;
+    private final int[] slots;
+    private final DecodingPlan[] elements;
+    private final String[] pools;
+    private final int timeSlot;
+    private final int threadSlot;
+    private final int stackTraceSlot;
+
+    private DecodingPlan(String name, Compiler compiler, boolean truncate) {
+        this.name = name;
+        this.fields = compiler.fields.toArray(new String[0]);
+        this.floating = new boolean[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            floating[i] = compiler.floating.get(i);
+        }
+        this.hasStrings = compiler.hasStrings;
+
+        int length = compiler.ops.size();
+        if (truncate) {
+            // nothing has to be read after the last requested field
+            while (length > 0 && compiler.slots.get(length - 1) < 0) {
+                length--;
+            }
+        }
+        this.ops = new byte[length];
+        this.slots = new int[length];
+        this.elements = new DecodingPlan[length];
+        this.pools = new String[length];
+        for (int i = 0; i < length; i++) {
+            ops[i] = compiler.ops.get(i);
+            slots[i] = compiler.slots.get(i);
+            elements[i] = compiler.elements.get(i);
+            pools[i] = compiler.pools.get(i);
+        }
+
+        this.timeSlot = fieldIndex("startTime");
+        this.threadSlot = fieldIndex("eventThread");
+        this.stackTraceSlot = fieldIndex("stackTrace");
+    }
+
+    // Requested fields are decoded together with startTime, eventThread and stackTrace;
+    // an empty list requests all fields
+    static DecodingPlan compile(JfrClass type, Dictionary<JfrClass> types, Collection<String> requested) {
+        Compiler compiler = new Compiler(types);
+        for (JfrField field : type.fields) {
+            boolean store = requested.isEmpty() || requested.contains(field.name)
+                    || "startTime".equals(field.name) || "eventThread".equals(field.name) || "stackTrace".equals(field.name);
+            compiler.field(field, store ? field.name : null, 0);
+        }
+        return new DecodingPlan(type.name, compiler, true);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String[] fields() {
+        return fields.clone();
+    }
+
+    public int fieldIndex(String field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isFloating(int index) {
+        return floating[index];
+    }
+
+    public GenericEvent decode(JfrReader jfr) {
+        long[] values = new long[fields.length];
+        String[] strings = hasStrings ? new String[fields.length] : null;
+        execute(jfr, values, strings);
+        return new GenericEvent(
+                this,
+                timeSlot >= 0 ? values[timeSlot] : 0,
+                threadSlot >= 0 ? (int) values[threadSlot] : 0,
+                stackTraceSlot >= 0 ? (int) values[stackTraceSlot] : 0,
+                values,
+                strings
+        );
+    }
+
+    private void execute(JfrReader jfr, long[] values, String[] strings) {
+        for (int i = 0; i < ops.length; i++) {
+            int slot = slots[i];
+            switch (ops[i]) {
+                case VARLONG:
+                    if (slot >= 0) {
+                        values[slot] = jfr.getVarlong();
+                    } else {
+                        jfr.skipVarlong();
+                    }
+                    break;
+                case BYTE:
+                    if (slot >= 0) {
+                        values[slot] = jfr.getByte();
+                    } else {
+                        jfr.skip(1);
+                    }
+                    break;
+                case FLOAT:
+                    if (slot >= 0) {
+                        values[slot] = Double.doubleToRawLongBits(jfr.getFloat());
+                    } else {
+                        jfr.skip(4);
+                    }
+                    break;
+                case DOUBLE:
+                    if (slot >= 0) {
+                        values[slot] = Double.doubleToRawLongBits(jfr.getDouble());
+                    } else {
+                        jfr.skip(8);
+                    }
+                    break;
+                case STRING:
+                    if (slot >= 0) {
+                        strings[slot] = jfr.getString();
+                    } else {
+                        jfr.skipString();
+                    }
+                    break;
+                case CONSTANT_REF:
+                    values[slot] = jfr.getVarlong();
+                    strings[slot] = jfr.getConstantString(pools[i], values[slot]);
+                    break;
+                case ARRAY:
+                    for (int count = jfr.getVarint(); count > 0; count--) {
+                        elements[i].execute(jfr, null, null);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static class Compiler {
+        final Dictionary<JfrClass> types;
+        final List<String> fields = new ArrayList<>();
+        final List<Boolean> floating = new ArrayList<>();
+        final List<Byte> ops = new ArrayList<>();
+        final List<Integer> slots = new ArrayList<>();
+        final List<DecodingPlan> elements = new ArrayList<>();
+        final List<String> pools = new ArrayList<>();
+        boolean hasStrings;
+
+        Compiler(Dictionary<JfrClass> types) {
+            this.types = types;
+        }
+
+        // Arrays and nested structures are only skipped, their values are not exposed
+        void field(JfrField field, String storeAs, int depth) {
+            JfrClass type = types.get(field.type);
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown type of field " + field.name);
+            }
+            if (depth > MAX_NESTING) {
+                throw new IllegalArgumentException("Too deep nesting of " + type.name);
+            }
+
+            if (field.array) {
+                Compiler element = new Compiler(types);
+                element.value(type, field.constantPool, null, depth + 1);
+                add(ARRAY, -1, new DecodingPlan(type.name, element, false), null);
+            } else {
+                value(type, field.constantPool, storeAs, depth);
+            }
+        }
+
+        private void value(JfrClass type, boolean constantPool, String storeAs, int depth) {
+            if (constantPool) {
+                // references to pools with a string form are stored as both the id and the string
+                boolean string = storeAs != null && hasStringForm(type);
+                add(string ? CONSTANT_REF : VARLONG, slot(storeAs, false, string), null, string ? type.name : null);
+                return;
+            }
+            switch (type.name) {
+                case "boolean":
+                case "byte":
+                    add(BYTE, slot(storeAs, false, false), null, null);
+                    break;
+                case "char":
+                case "short":
+                case "int":
+                case "long":
+                    add(VARLONG, slot(storeAs, false, false), null, null);
+                    break;
+                case "float":
+                    add(FLOAT, slot(storeAs, true, false), null, null);
+                    break;
+                case "double":
+                    add(DOUBLE, slot(storeAs, true, false), null, null);
+                    break;
+                case "java.lang.String":
+                    add(STRING, slot(storeAs, false, true), null, null);
+                    break;
+                default:
+                    for (JfrField nested : type.fields) {
+                        field(nested, null, depth + 1);
+                    }
+            }
+        }
+
+        private int slot(String storeAs, boolean isFloating, boolean isString) {
+            if (storeAs == null) {
+                return -1;
+            }
+            fields.add(storeAs);
+            floating.add(isFloating);
+            hasStrings |= isString;
+            return fields.size() - 1;
+        }
+
+        private static boolean hasStringForm(JfrClass type) {
+            switch (type.name) {
+                case "java.lang.String":
+                case "java.lang.Thread":
+                case "java.lang.Class":
+                case "jdk.types.Symbol":
+                    return true;
+                default:
+                    return type.simpleType && type.fields.size() == 1;
+            }
+        }
+
+        private void add(byte op, int slot, DecodingPlan element, String pool) {
+            ops.add(op);
+            slots.add(slot);
+            elements.add(element);
+            pools.add(pool);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.toString(fields);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import java.util.Arrays;
+
+/**
+ * Fast and compact long->long map.
+ */
+public class DictionaryLong {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public DictionaryLong() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public DictionaryLong(int initialCapacity) {
+        this.keys = new long[initialCapacity];
+        this.values = new long[initialCapacity];
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void put(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Zero key not allowed");
+        }
+
+        int mask = keys.length - 1;
+        int i = hashCode(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    public long get(long key) {
+        int mask = keys.length - 1;
+        int i = hashCode(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                throw new IllegalArgumentException("No such key: " + key);
+            }
+            i = (i + 1) & mask;
+        }
+        return values[i];
+    }
+
+    public long get(long key, long notFound) {
+        int mask = keys.length - 1;
+        int i = hashCode(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                return notFound;
+            }
+            i = (i + 1) & mask;
+        }
+        return values[i];
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    public int preallocate(int count) {
+        if (count * 2 > keys.length) {
+            resize(Integer.highestOneBit(count * 4 - 1));
+        }
+        return count;
+    }
+
+    private void resize(int newCapacity) {
+        long[] newKeys = new long[newCapacity];
+        long[] newValues = new long[newCapacity];
+        int mask = newKeys.length - 1;
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                for (int j = hashCode(keys[i]) & mask; ; j = (j + 1) & mask) {
+                    if (newKeys[j] == 0) {
+                        newKeys[j] = keys[i];
+                        newValues[j] = values[i];
+                        break;
+                    }
+                }
+            }
+        }
+
+        keys = newKeys;
+        values = newValues;
+    }
+
+    private static int hashCode(long key) {
+        key *= 0xc6a4a7935bd1e995L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    public interface Visitor {
+        void visit(long key, long value);
+    }
+}
@@ -13,12 +13,14 @@ public class JfrClass extends Element {
     final int id;
     final boolean simpleType;
     final String name;
+    final String superType;
     final List<JfrField> fields;
 
     JfrClass(Map<String, String> attributes) {
         this.id = Integer.parseInt(attributes.get("id"));
         this.simpleType = "true".equals(attributes.get("simpleType"));
         this.name = attributes.get("name");
+        this.superType = attributes.get("superType");
         this.fields = new ArrayList<>(2);
     }
 
@@ -11,10 +11,12 @@ public class JfrField extends Element {
     final String name;
     final int type;
     final boolean constantPool;
+    final boolean array;
 
     JfrField(Map<String, String> attributes) {
         this.name = attributes.get("name");
         this.type = Integer.parseInt(attributes.get("class"));
         this.constantPool = "true".equals(attributes.get("constantPool"));
+        this.array = "1".equals(attributes.get("dimension"));
     }
 }
@@ -9,7 +9,14 @@ import one.jfr.event.*;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
+import java.io.UncheckedIOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
@@ -17,16 +24,21 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Parses JFR output produced by async-profiler.
  */
 public class JfrReader implements Closeable {
     private static final int BUFFER_SIZE = 2 * 1024 * 1024;
+    private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
     private static final int CHUNK_HEADER_SIZE = 68;
     private static final int CHUNK_SIGNATURE = 0x464c5200;
 
@@ -37,6 +49,11 @@ public class JfrReader implements Closeable {
 
     private final FileChannel ch;
     private ByteBuffer buf;
+    private final boolean mapped;
+    private final boolean lazy;
+    private final long windowSize;
+    private ByteBuffer lookupBuf;
+    private long lookupPosition;
     private final long fileSize;
     private long filePosition;
     private byte state;
@@ -54,14 +71,16 @@ public class JfrReader implements Closeable {
     public final Map<String, JfrClass> typesByName = new HashMap<>();
     public final Dictionary<String> threads = new Dictionary<>();
     public final Dictionary<ClassRef> classes = new Dictionary<>();
-    public final Dictionary<String> strings = new Dictionary<>();
-    public final Dictionary<byte[]> symbols = new Dictionary<>();
-    public final Dictionary<MethodRef> methods = new Dictionary<>();
-    public final Dictionary<StackTrace> stackTraces = new Dictionary<>();
+    public final LazyDictionary<String> strings = new LazyDictionary<>(offset -> decodeAt(offset, this::getString));
+    public final LazyDictionary<byte[]> symbols = new LazyDictionary<>(offset -> decodeAt(offset, this::readSymbol));
+    public final LazyDictionary<MethodRef> methods = new LazyDictionary<>(offset -> decodeAt(offset, this::readMethod));
+    public final LazyDictionary<StackTrace> stackTraces = new LazyDictionary<>(offset -> decodeAt(offset, this::readStackTraceEntry));
     public final Map<String, String> settings = new HashMap<>();
     public final Map<String, Map<Integer, String>> enums = new HashMap<>();
 
-    private final Dictionary<Constructor<? extends Event>> customEvents = new Dictionary<>();
+    private final Map<String, CustomEvent> customEventTypes = defaultCustomEvents();
+    private final Dictionary<CustomEvent> customEvents = new Dictionary<>();
+    private final Map<String, Set<String>> genericEventTypes = new HashMap<>();
 
     private int executionSample;
     private int nativeMethodSample;
@@ -77,23 +96,76 @@ public class JfrReader implements Closeable {
     private int free;
 
     public JfrReader(String fileName) throws IOException {
-        this.ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
-        this.buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
-        this.fileSize = ch.size();
+        this(fileName, false);
+    }
+
+    // In mapped mode the file is read through MappedByteBuffer windows of up to 2 GB;
+    // if the file cannot be mapped, the reader falls back to the regular buffered channel
+    public JfrReader(String fileName, boolean mapped) throws IOException {
+        this(fileName, mapped, false);
+    }
+
+    // A lazy reader only remembers offsets of stack traces, methods, symbols and strings in the constant pool,
+    // and decodes an entry when it is requested first. Lazy reading requires a mapped file
+    public JfrReader(String fileName, boolean mapped, boolean lazy) throws IOException {
+        this(fileName, mapped, lazy, MAX_MAPPING_SIZE);
+    }
+
+    // Windows smaller than the file make a small recording cross mapping and buffer boundaries
+    JfrReader(String fileName, boolean mapped, boolean lazy, long windowSize) throws IOException {
+        this(FileChannel.open(Paths.get(fileName), StandardOpenOption.READ), mapped, lazy, windowSize);
 
-        buf.flip();
         ensureBytes(CHUNK_HEADER_SIZE);
         if (!readChunk(0)) {
             throw new IOException("Incomplete JFR file");
         }
     }
 
+    // Reads only the given chunk of the file, lazily through mapped windows, and stops at the next chunk.
+    // Unlike JfrReader(ByteBuffer), the chunk may be larger than 2 GB
+    public JfrReader(String fileName, Chunk chunk) throws IOException {
+        this(fileName, chunk, MAX_MAPPING_SIZE);
+    }
+
+    JfrReader(String fileName, Chunk chunk, long windowSize) throws IOException {
+        this(FileChannel.open(Paths.get(fileName), StandardOpenOption.READ), true, true, windowSize);
+        this.stopAtNewChunk = true;
+
+        seek(chunk.offset);
+        ensureBytes(CHUNK_HEADER_SIZE);
+        if (!readChunk(buf.position())) {
+            throw new IOException("Incomplete JFR file");
+        }
+    }
+
+    private JfrReader(FileChannel ch, boolean mapped, boolean lazy, long windowSize) throws IOException {
+        this.ch = ch;
+        this.fileSize = ch.size();
+        this.windowSize = windowSize;
+        this.buf = mapped ? tryMap(0) : null;
+        this.mapped = buf != null;
+        this.lazy = lazy && this.mapped;
+
+        if (!this.mapped) {
+            buf = ByteBuffer.allocateDirect((int) Math.min(windowSize, BUFFER_SIZE));
+            buf.flip();
+        }
+    }
+
     public JfrReader(ByteBuffer buf) throws IOException {
+        this(buf, false);
+    }
+
+    public JfrReader(ByteBuffer buf, boolean lazy) throws IOException {
         this.ch = null;
         this.buf = buf;
+        this.mapped = false;
+        this.lazy = lazy;
+        this.windowSize = MAX_MAPPING_SIZE;
         this.fileSize = buf.limit();
 
         buf.order(ByteOrder.BIG_ENDIAN);
+        this.lookupBuf = lazy ? buf.duplicate() : null;
         if (!readChunk(0)) {
             throw new IOException("Incomplete JFR file");
         }
@@ -118,14 +190,72 @@ public class JfrReader implements Closeable {
         return endNanos - startNanos;
     }
 
+    // The event class must have a public constructor accepting JfrReader
     public <E extends Event> void registerEvent(String name, Class<E> eventClass) {
+        registerEvent(name, eventClass, factoryOf(eventClass));
+    }
+
+    // Events of the given type are decoded by the factory in this and all following chunks
+    public <E extends Event> void registerEvent(String name, Class<E> eventClass, EventFactory<? extends E> factory) {
+        CustomEvent customEvent = new CustomEvent(eventClass, factory);
+        genericEventTypes.remove(name);
+        customEventTypes.put(name, customEvent);
         JfrClass type = typesByName.get(name);
         if (type != null) {
-            try {
-                customEvents.put(type.id, eventClass.getConstructor(JfrReader.class));
-            } catch (NoSuchMethodException e) {
-                throw new IllegalArgumentException("No suitable constructor found");
-            }
+            customEvents.put(type.id, customEvent);
+        }
+    }
+
+    // Events of the given type are decoded as GenericEvent according to the chunk metadata.
+    // Only the listed fields are decoded; no fields means all fields
+    public void registerGenericEvent(String name, String... fields) {
+        Set<String> requested = new HashSet<>(Arrays.asList(fields));
+        customEventTypes.remove(name);
+        genericEventTypes.put(name, requested);
+        JfrClass type = typesByName.get(name);
+        if (type != null) {
+            customEvents.put(type.id, genericEvent(type, requested));
+        }
+    }
+
+    private CustomEvent genericEvent(JfrClass type, Set<String> requested) {
+        return new CustomEvent(GenericEvent.class, DecodingPlan.compile(type, types, requested)::decode);
+    }
+
+    private static Map<String, CustomEvent> defaultCustomEvents() {
+        Map<String, CustomEvent> events = new HashMap<>();
+        events.put("jdk.CPULoad", new CustomEvent(CPULoad.class, CPULoad::new));
+        events.put("jdk.GCHeapSummary", new CustomEvent(GCHeapSummary.class, GCHeapSummary::new));
+        events.put("jdk.ObjectCount", new CustomEvent(ObjectCount.class, ObjectCount::new));
+        events.put("jdk.ObjectCountAfterGC", new CustomEvent(ObjectCount.class, ObjectCount::new));
+        return events;
+    }
+
+    // Spins a functional factory around the constructor once, so decoding an event is a plain call
+    @SuppressWarnings("unchecked")
+    private static <E extends Event> EventFactory<E> factoryOf(Class<E> eventClass) {
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(eventClass, MethodType.methodType(void.class, JfrReader.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No suitable constructor found", e);
+        }
+
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                    MethodHandles.lookup(),
+                    "read",
+                    MethodType.methodType(EventFactory.class),
+                    MethodType.methodType(Event.class, JfrReader.class),
+                    constructor,
+                    constructor.type()
+            );
+            // the call site is invoked once through an interface, so no Throwable of MethodHandle.invoke is caught
+            return (EventFactory<E>) MethodHandleProxies.asInterfaceInstance(Supplier.class, site.getTarget()).get();
+        } catch (LambdaConversionException | IllegalArgumentException e) {
+            // The class is not visible for the generated factory, call the constructor handle instead
+            return MethodHandleProxies.asInterfaceInstance(EventFactory.class, constructor);
         }
     }
 
@@ -134,6 +264,100 @@ public class JfrReader implements Closeable {
         return state == STATE_NEW_CHUNK ? readChunk(buf.position()) : state == STATE_READING;
     }
 
+    // Lists complete chunks of the file by following chunk headers only, without parsing their contents
+    public static List<Chunk> readChunks(String fileName) throws IOException {
+        return readChunks(fileName, 0);
+    }
+
+    // Same as readChunks(fileName), starting from the chunk at the given offset.
+    // Stops at the first chunk that is still being written
+    public static List<Chunk> readChunks(String fileName, long offset) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            return readChunks(ch, offset);
+        }
+    }
+
+    static List<Chunk> readChunks(FileChannel ch, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+        long fileSize = ch.size();
+        List<Chunk> chunks = new ArrayList<>();
+
+        while (offset + CHUNK_HEADER_SIZE <= fileSize) {
+            header.clear();
+            while (header.hasRemaining() && ch.read(header, offset + header.position()) > 0) {
+                // keep reading
+            }
+            if (header.hasRemaining()) {
+                break;
+            }
+            checkChunkHeader(header, 0);
+
+            Chunk chunk = new Chunk(offset, header, 0);
+            if (!chunk.isComplete(fileSize)) {
+                break;
+            }
+            chunks.add(chunk);
+            offset += chunk.size;
+        }
+        return chunks;
+    }
+
+    // Counts events of every type by walking event headers and chunk metadata, constant pools are not parsed
+    public static RecordingSummary readSummary(String fileName) throws IOException {
+        try (JfrReader reader = new JfrReader(FileChannel.open(Paths.get(fileName), StandardOpenOption.READ), true, false, MAX_MAPPING_SIZE)) {
+            List<Chunk> chunks = readChunks(reader.ch, 0);
+            return new RecordingSummary(chunks, reader.countEvents(chunks));
+        }
+    }
+
+    // Same as readSummary(fileName) with empty event counts, only chunk headers are read
+    public static RecordingSummary readChunkSummary(String fileName) throws IOException {
+        return new RecordingSummary(readChunks(fileName), Collections.emptyMap());
+    }
+
+    // Per-type event counts of the chunks, the slow part of readSummary(fileName)
+    public static Map<String, Long> countEvents(String fileName, List<Chunk> chunks) throws IOException {
+        try (JfrReader reader = new JfrReader(FileChannel.open(Paths.get(fileName), StandardOpenOption.READ), true, false, MAX_MAPPING_SIZE)) {
+            return reader.countEvents(chunks);
+        }
+    }
+
+    private Map<String, Long> countEvents(List<Chunk> chunks) throws IOException {
+        Map<String, Long> eventCounts = new HashMap<>();
+        DictionaryInt counts = new DictionaryInt();
+
+        for (Chunk chunk : chunks) {
+            types.clear();
+            typesByName.clear();
+            readMeta(chunk.offset + chunk.metaOffset);
+
+            counts.clear();
+            long chunkEnd = chunk.offset + chunk.size;
+            seek(chunk.offset + CHUNK_HEADER_SIZE);
+            while (filePosition + buf.position() < chunkEnd && ensureBytes(CHUNK_HEADER_SIZE)) {
+                int pos = buf.position();
+                int size = getVarint();
+                int type = getVarint();
+                if (size <= 0) {
+                    throw new IOException("Invalid event size at " + (filePosition + pos));
+                }
+                if (type != 0) {
+                    counts.put(type, counts.get(type, 0) + 1);
+                }
+                seek(filePosition + pos + size);
+            }
+
+            for (JfrClass type : typesByName.values()) {
+                int count = type.id != 0 && "jdk.jfr.Event".equals(type.superType) ? counts.get(type.id, 0) : 0;
+                if (count > 0) {
+                    eventCounts.merge(type.name, (long) count, Long::sum);
+                }
+            }
+        }
+
+        return eventCounts;
+    }
+
     public List<Event> readAllEvents() throws IOException {
         return readAllEvents(null);
     }
@@ -154,24 +378,31 @@ public class JfrReader implements Closeable {
     @SuppressWarnings("unchecked")
     public <E extends Event> E readEvent(Class<E> cls) throws IOException {
         while (ensureBytes(CHUNK_HEADER_SIZE)) {
-            int pos = buf.position();
+            int pos = wholeEvent();
             int size = getVarint();
             int type = getVarint();
 
             if (type == 'L' && buf.getInt(pos) == CHUNK_SIGNATURE) {
-                if (state != STATE_NEW_CHUNK && stopAtNewChunk) {
-                    buf.position(pos);
-                    state = STATE_NEW_CHUNK;
-                } else if (readChunk(pos)) {
+                if (enterChunk(pos)) {
                     continue;
                 }
                 return null;
             }
 
-            if (type == executionSample || type == nativeMethodSample) {
+            // registered factories take precedence over the built-in decoding of the same type
+            CustomEvent customEvent = customEvents.get(type);
+            if (customEvent != null) {
+                if (cls == null || cls == customEvent.eventClass) {
+                    try {
+                        return (E) customEvent.factory.read(this);
+                    } finally {
+                        seek(filePosition + pos + size);
+                    }
+                }
+            } else if (type == executionSample || type == nativeMethodSample) {
                 if (cls == null || cls == ExecutionSample.class) return (E) readExecutionSample(false);
             } else if (type == wallClockSample) {
-                if (cls == null || cls == ExecutionSample.class) return (E) readExecutionSample(true);
+                if (cls == null || cls == ExecutionSample.class || cls == WallClockSample.class) return (E) readExecutionSample(true);
             } else if (type == allocationInNewTLAB) {
                 if (cls == null || cls == AllocationSample.class) return (E) readAllocationSample(true);
             } else if (type == allocationOutsideTLAB || type == allocationSample) {
@@ -188,17 +419,6 @@ public class JfrReader implements Closeable {
                 if (cls == null || cls == ContendedLock.class) return (E) readContendedLock(true);
             } else if (type == activeSetting) {
                 readActiveSetting();
-            } else {
-                Constructor<? extends Event> customEvent = customEvents.get(type);
-                if (customEvent != null && (cls == null || cls == customEvent.getDeclaringClass())) {
-                    try {
-                        return (E) customEvent.newInstance(this);
-                    } catch (ReflectiveOperationException e) {
-                        throw new IllegalStateException(e);
-                    } finally {
-                        seek(filePosition + pos + size);
-                    }
-                }
             }
 
             seek(filePosition + pos + size);
@@ -208,13 +428,87 @@ public class JfrReader implements Closeable {
         return null;
     }
 
+    public boolean nextEvent(EventCursor cursor) throws IOException {
+        return nextEvent(cursor, null);
+    }
+
+    // Decodes the next event into the reusable cursor without allocating an Event object.
+    // Only built-in event types are decoded, custom events are skipped,
+    // including built-in types registered with registerEvent or registerGenericEvent
+    public boolean nextEvent(EventCursor cursor, Class<? extends Event> cls) throws IOException {
+        while (ensureBytes(CHUNK_HEADER_SIZE)) {
+            int pos = wholeEvent();
+            int size = getVarint();
+            int type = getVarint();
+
+            if (type == 'L' && buf.getInt(pos) == CHUNK_SIGNATURE) {
+                if (enterChunk(pos)) {
+                    continue;
+                }
+                return false;
+            }
+
+            if (customEvents.get(type) != null) {
+                // decoded by a registered factory, which the cursor cannot hold
+            } else if (type == executionSample || type == nativeMethodSample) {
+                if (cls == null || cls == ExecutionSample.class) return readExecutionSample(cursor, false);
+            } else if (type == wallClockSample) {
+                if (cls == null || cls == ExecutionSample.class || cls == WallClockSample.class) return readExecutionSample(cursor, true);
+            } else if (type == allocationInNewTLAB) {
+                if (cls == null || cls == AllocationSample.class) return readAllocationSample(cursor, true);
+            } else if (type == allocationOutsideTLAB || type == allocationSample) {
+                if (cls == null || cls == AllocationSample.class) return readAllocationSample(cursor, false);
+            } else if (type == malloc) {
+                if (cls == null || cls == MallocEvent.class) return readMallocEvent(cursor, true);
+            } else if (type == free) {
+                if (cls == null || cls == MallocEvent.class) return readMallocEvent(cursor, false);
+            } else if (type == liveObject) {
+                if (cls == null || cls == LiveObject.class) return readLiveObject(cursor);
+            } else if (type == monitorEnter) {
+                if (cls == null || cls == ContendedLock.class) return readContendedLock(cursor, false);
+            } else if (type == threadPark) {
+                if (cls == null || cls == ContendedLock.class) return readContendedLock(cursor, true);
+            } else if (type == activeSetting) {
+                readActiveSetting();
+            }
+
+            seek(filePosition + pos + size);
+        }
+
+        state = STATE_EOF;
+        return false;
+    }
+
+    // Returns true if reading should continue with the new chunk
+    // An event that crosses the end of the window or the buffer is read again from its start
+    private int wholeEvent() throws IOException {
+        int pos = buf.position();
+        int size = getVarint();
+        buf.position(pos);
+        if (size > buf.remaining()) {
+            ensureBytes(size);
+        }
+        return buf.position();
+    }
+
+    private boolean enterChunk(int pos) throws IOException {
+        if (state != STATE_NEW_CHUNK && stopAtNewChunk) {
+            buf.position(pos);
+            state = STATE_NEW_CHUNK;
+            return false;
+        }
+        return readChunk(pos);
+    }
+
     private ExecutionSample readExecutionSample(boolean hasSamples) {
         long time = getVarlong();
         int tid = getVarint();
         int stackTraceId = getVarint();
         int threadState = getVarint();
-        int samples = hasSamples ? getVarint() : 1;
-        return new ExecutionSample(time, tid, stackTraceId, threadState, samples);
+        if (hasSamples) {
+            return new WallClockSample(time, tid, stackTraceId, threadState, getVarint());
+        }
+        return new ExecutionSample(time, tid, stackTraceId, threadState, 1);
     }
 
     private AllocationSample readAllocationSample(boolean tlab) {
@@ -258,6 +552,61 @@ public class JfrReader implements Closeable {
         return new ContendedLock(time, tid, stackTraceId, duration, classId);
     }
 
+    private boolean readExecutionSample(EventCursor cursor, boolean hasSamples) {
+        cursor.type = hasSamples ? WallClockSample.class : ExecutionSample.class;
+        cursor.time = getVarlong();
+        cursor.tid = getVarint();
+        cursor.stackTraceId = getVarint();
+        cursor.threadState = getVarint();
+        cursor.samples = hasSamples ? getVarint() : 1;
+        return true;
+    }
+
+    private boolean readAllocationSample(EventCursor cursor, boolean tlab) {
+        cursor.type = AllocationSample.class;
+        cursor.time = getVarlong();
+        cursor.tid = getVarint();
+        cursor.stackTraceId = getVarint();
+        cursor.classId = getVarint();
+        cursor.allocationSize = getVarlong();
+        cursor.tlabSize = tlab ? getVarlong() : 0;
+        return true;
+    }
+
+    private boolean readMallocEvent(EventCursor cursor, boolean hasSize) {
+        cursor.type = MallocEvent.class;
+        cursor.time = getVarlong();
+        cursor.tid = getVarint();
+        cursor.stackTraceId = getVarint();
+        cursor.address = getVarlong();
+        cursor.size = hasSize ? getVarlong() : 0;
+        return true;
+    }
+
+    private boolean readLiveObject(EventCursor cursor) {
+        cursor.type = LiveObject.class;
+        cursor.time = getVarlong();
+        cursor.tid = getVarint();
+        cursor.stackTraceId = getVarint();
+        cursor.classId = getVarint();
+        cursor.allocationSize = getVarlong();
+        cursor.allocationTime = getVarlong();
+        return true;
+    }
+
+    private boolean readContendedLock(EventCursor cursor, boolean hasTimeout) {
+        cursor.type = ContendedLock.class;
+        cursor.time = getVarlong();
+        cursor.duration = getVarlong();
+        cursor.tid = getVarint();
+        cursor.stackTraceId = getVarint();
+        cursor.classId = getVarint();
+        if (hasTimeout) getVarlong();
+        getVarlong();
+        getVarlong();
+        return true;
+    }
+
     private void readActiveSetting() {
         for (JfrField field : typesByName.get("jdk.ActiveSetting").fields) {
             getVarlong();
@@ -271,33 +620,22 @@ public class JfrReader implements Closeable {
     }
 
     private boolean readChunk(int pos) throws IOException {
-        if (pos + CHUNK_HEADER_SIZE > buf.limit() || buf.getInt(pos) != CHUNK_SIGNATURE) {
+        if (pos + CHUNK_HEADER_SIZE > buf.limit()) {
             throw new IOException("Not a valid JFR file");
         }
-
-        int version = buf.getInt(pos + 4);
-        if (version < 0x20000 || version > 0x2ffff) {
-            throw new IOException("Unsupported JFR version: " + (version >>> 16) + "." + (version & 0xffff));
-        }
+        checkChunkHeader(buf, pos);
 
         long chunkStart = filePosition + pos;
-        long chunkSize = buf.getLong(pos + 8);
-        if (chunkStart + chunkSize > fileSize) {
+        Chunk chunk = new Chunk(chunkStart, buf, pos);
+        if (!chunk.isComplete(fileSize)) {
             state = STATE_INCOMPLETE;
             return false;
         }
 
-        long cpOffset = buf.getLong(pos + 16);
-        long metaOffset = buf.getLong(pos + 24);
-        if (cpOffset == 0 || metaOffset == 0) {
-            state = STATE_INCOMPLETE;
-            return false;
-        }
-
-        chunkStartNanos = buf.getLong(pos + 32);
-        chunkEndNanos = buf.getLong(pos + 32) + buf.getLong(pos + 40);
-        chunkStartTicks = buf.getLong(pos + 48);
-        ticksPerSec = buf.getLong(pos + 56);
+        chunkStartNanos = chunk.startNanos;
+        chunkEndNanos = chunk.endNanos();
+        chunkStartTicks = chunk.startTicks;
+        ticksPerSec = chunk.ticksPerSec;
 
         startNanos = Math.min(startNanos, chunkStartNanos);
         endNanos = Math.max(endNanos, chunkEndNanos);
@@ -306,8 +644,8 @@ public class JfrReader implements Closeable {
         types.clear();
         typesByName.clear();
 
-        readMeta(chunkStart + metaOffset);
-        readConstantPool(chunkStart + cpOffset);
+        readMeta(chunkStart + chunk.metaOffset);
+        readConstantPool(chunkStart + chunk.cpOffset);
         cacheEventTypes();
 
         seek(chunkStart + CHUNK_HEADER_SIZE);
@@ -315,6 +653,17 @@ public class JfrReader implements Closeable {
         return true;
     }
 
+    private static void checkChunkHeader(ByteBuffer buf, int pos) throws IOException {
+        if (buf.getInt(pos) != CHUNK_SIGNATURE) {
+            throw new IOException("Not a valid JFR file");
+        }
+
+        int version = buf.getInt(pos + 4);
+        if (version < 0x20000 || version > 0x2ffff) {
+            throw new IOException("Unsupported JFR version: " + (version >>> 16) + "." + (version & 0xffff));
+        }
+    }
+
     private void readMeta(long metaOffset) throws IOException {
         seek(metaOffset);
         ensureBytes(5);
@@ -354,9 +703,8 @@ public class JfrReader implements Closeable {
         switch (name) {
             case "class": {
                 JfrClass type = new JfrClass(attributes);
-                if (!attributes.containsKey("superType")) {
-                    types.put(type.id, type);
-                }
+                // types with a superType are kept too, fields of generic events may refer to them
+                types.put(type.id, type);
                 typesByName.put(type.name, type);
                 return type;
             }
@@ -448,25 +796,65 @@ public class JfrReader implements Closeable {
     }
 
     private void readMethods() {
+        if (lazy) {
+            int count = getVarint();
+            for (int i = 0; i < count; i++) {
+                methods.putOffset(getVarlong(), position());
+                skipVarlong();
+                skipVarlong();
+                skipVarlong();
+                skipVarint();
+                skipVarint();
+            }
+            return;
+        }
+
         int count = methods.preallocate(getVarint());
         for (int i = 0; i < count; i++) {
             long id = getVarlong();
-            long cls = getVarlong();
-            long name = getVarlong();
-            long sig = getVarlong();
-            int modifiers = getVarint();
-            int hidden = getVarint();
-            methods.put(id, new MethodRef(cls, name, sig));
+            methods.put(id, readMethod());
         }
     }
 
+    private MethodRef readMethod() {
+        long cls = getVarlong();
+        long name = getVarlong();
+        long sig = getVarlong();
+        int modifiers = getVarint();
+        int hidden = getVarint();
+        return new MethodRef(cls, name, sig);
+    }
+
     private void readStackTraces() {
+        if (lazy) {
+            int count = getVarint();
+            for (int i = 0; i < count; i++) {
+                stackTraces.putOffset(getVarlong(), position());
+                skipStackTraceEntry();
+            }
+            return;
+        }
+
         int count = stackTraces.preallocate(getVarint());
         for (int i = 0; i < count; i++) {
             long id = getVarlong();
-            int truncated = getVarint();
-            StackTrace stackTrace = readStackTrace();
-            stackTraces.put(id, stackTrace);
+            stackTraces.put(id, readStackTraceEntry());
+        }
+    }
+
+    private StackTrace readStackTraceEntry() {
+        int truncated = getVarint();
+        return readStackTrace();
+    }
+
+    private void skipStackTraceEntry() {
+        skipVarint();
+        int depth = getVarint();
+        for (int i = 0; i < depth; i++) {
+            skipVarlong();
+            skipVarint();
+            skipVarint();
+            buf.get();
         }
     }
 
@@ -486,6 +874,15 @@ public class JfrReader implements Closeable {
     }
 
     private void readStrings() {
+        if (lazy) {
+            int count = getVarint();
+            for (int i = 0; i < count; i++) {
+                strings.putOffset(getVarlong(), position());
+                skipString();
+            }
+            return;
+        }
+
         int count = strings.preallocate(getVarint());
         for (int i = 0; i < count; i++) {
             strings.put(getVarlong(), getString());
@@ -493,14 +890,27 @@ public class JfrReader implements Closeable {
     }
 
     private void readSymbols() {
+        if (lazy) {
+            int count = getVarint();
+            for (int i = 0; i < count; i++) {
+                symbols.putOffset(getVarlong(), position());
+                skipString();
+            }
+            return;
+        }
+
         int count = symbols.preallocate(getVarint());
         for (int i = 0; i < count; i++) {
             long id = getVarlong();
-            if (buf.get() != 3) {
-                throw new IllegalArgumentException("Invalid symbol encoding");
-            }
-            symbols.put(id, getBytes());
+            symbols.put(id, readSymbol());
+        }
+    }
+
+    private byte[] readSymbol() {
+        if (buf.get() != 3) {
+            throw new IllegalArgumentException("Invalid symbol encoding");
         }
+        return getBytes();
     }
 
     private void readEnumValues(String typeName) {
@@ -558,10 +968,45 @@ public class JfrReader implements Closeable {
         malloc = getTypeId("profiler.Malloc");
         free = getTypeId("profiler.Free");
 
-        registerEvent("jdk.CPULoad", CPULoad.class);
-        registerEvent("jdk.GCHeapSummary", GCHeapSummary.class);
-        registerEvent("jdk.ObjectCount", ObjectCount.class);
-        registerEvent("jdk.ObjectCountAfterGC", ObjectCount.class);
+        customEvents.clear();
+        for (Map.Entry<String, CustomEvent> entry : customEventTypes.entrySet()) {
+            JfrClass type = typesByName.get(entry.getKey());
+            if (type != null) {
+                customEvents.put(type.id, entry.getValue());
+            }
+        }
+        // plans depend on the field layout, which may change from chunk to chunk
+        for (Map.Entry<String, Set<String>> entry : genericEventTypes.entrySet()) {
+            JfrClass type = typesByName.get(entry.getKey());
+            if (type != null) {
+                customEvents.put(type.id, genericEvent(type, entry.getValue()));
+            }
+        }
+    }
+
+    // String form of a constant pool entry referred to by a generic event field, null if there is none
+    String getConstantString(String typeName, long id) {
+        switch (typeName) {
+            case "java.lang.String":
+                return strings.get(id);
+            case "java.lang.Thread":
+                return threads.get(id);
+            case "java.lang.Class": {
+                ClassRef cls = classes.get(id);
+                String name = cls != null ? getSymbolString(cls.name) : null;
+                return name != null ? name.replace('/', '.') : null;
+            }
+            case "jdk.types.Symbol":
+                return getSymbolString(id);
+            default:
+                Map<Integer, String> values = enums.get(typeName);
+                return values != null ? values.get((int) id) : null;
+        }
+    }
+
+    private String getSymbolString(long id) {
+        byte[] symbol = symbols.get(id);
+        return symbol != null ? new String(symbol, StandardCharsets.UTF_8) : null;
     }
 
     private int getTypeId(String typeName) {
@@ -640,16 +1085,95 @@ public class JfrReader implements Closeable {
         }
     }
 
+    public byte getByte() {
+        return buf.get();
+    }
+
     public byte[] getBytes() {
         byte[] bytes = new byte[getVarint()];
         buf.get(bytes);
         return bytes;
     }
 
+    private void skipVarint() {
+        while (buf.get() < 0) {
+            // skip continuation bytes
+        }
+    }
+
+    void skipVarlong() {
+        for (int i = 0; i < 8; i++) {
+            if (buf.get() >= 0) {
+                return;
+            }
+        }
+        buf.get();
+    }
+
+    void skipString() {
+        switch (buf.get()) {
+            case 0:
+            case 1:
+                break;
+            case 2:
+                skipVarlong();
+                break;
+            case 3:
+            case 5: {
+                int length = getVarint();
+                buf.position(buf.position() + length);
+                break;
+            }
+            case 4: {
+                int length = getVarint();
+                for (int i = 0; i < length; i++) {
+                    skipVarint();
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Invalid string encoding");
+        }
+    }
+
+    void skip(int bytes) {
+        buf.position(buf.position() + bytes);
+    }
+
+    // Offset of the next byte to be read, relative to the start of the file or the buffer
+    public long position() {
+        return filePosition + buf.position();
+    }
+
+    // Decodes a constant pool entry of a lazy reader without moving the current read position
+    private <T> T decodeAt(long offset, Supplier<T> decoder) {
+        ByteBuffer savedBuf = buf;
+        long savedFilePosition = filePosition;
+        try {
+            long pos = offset - lookupPosition;
+            if (lookupBuf == null || pos < 0 || pos >= lookupBuf.limit()) {
+                lookupBuf = ch.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, fileSize - offset));
+                lookupPosition = offset;
+                pos = 0;
+            }
+            buf = lookupBuf;
+            filePosition = lookupPosition;
+            buf.position((int) pos);
+            return decoder.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buf = savedBuf;
+            filePosition = savedFilePosition;
+        }
+    }
+
     private void seek(long pos) throws IOException {
         long bufPosition = pos - filePosition;
         if (bufPosition >= 0 && bufPosition <= buf.limit()) {
             buf.position((int) bufPosition);
+        } else if (mapped) {
+            map(pos);
         } else {
             filePosition = pos;
             ch.position(pos);
@@ -666,6 +1190,13 @@ public class JfrReader implements Closeable {
             return false;
         }
 
+        if (mapped) {
+            if (filePosition + buf.limit() < fileSize) {
+                map(filePosition + buf.position());
+            }
+            return buf.remaining() > 0;
+        }
+
         filePosition += buf.position();
 
         if (buf.capacity() < needed) {
@@ -682,4 +1213,27 @@ public class JfrReader implements Closeable {
         buf.flip();
         return buf.limit() > 0;
     }
+
+    private ByteBuffer tryMap(long pos) {
+        try {
+            return ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, fileSize - pos));
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private void map(long pos) throws IOException {
+        buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, fileSize - pos));
+        filePosition = pos;
+    }
+
+    private static class CustomEvent {
+        final Class<? extends Event> eventClass;
+        final EventFactory<? extends Event> factory;
+
+        CustomEvent(Class<? extends Event> eventClass, EventFactory<? extends Event> factory) {
+            this.eventClass = eventClass;
+            this.factory = factory;
+        }
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+/**
+ * Dictionary that can hold file offsets of constant pool entries instead of values.
+ * An entry is decoded at the first get() and cached afterwards.
+ */
+public class LazyDictionary<T> extends Dictionary<T> {
+    private final DictionaryLong offsets = new DictionaryLong();
+    private final Decoder<T> decoder;
+
+    LazyDictionary(Decoder<T> decoder) {
+        this.decoder = decoder;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        offsets.clear();
+    }
+
+    // Only one of the maps is filled depending on whether the reader is lazy
+    @Override
+    public int size() {
+        return Math.max(super.size(), offsets.size());
+    }
+
+    @Override
+    public T get(long key) {
+        T value = super.get(key);
+        if (value == null) {
+            long offset = offsets.get(key, -1);
+            if (offset >= 0) {
+                value = decoder.decode(offset);
+                super.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void forEach(Visitor<T> visitor) {
+        offsets.forEach((key, offset) -> get(key));
+        super.forEach(visitor);
+    }
+
+    void putOffset(long key, long offset) {
+        offsets.put(key, offset);
+        if (super.get(key) != null) {
+            super.put(key, null);
+        }
+    }
+
+    interface Decoder<T> {
+        T decode(long offset);
+    }
+}
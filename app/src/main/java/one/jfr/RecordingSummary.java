@@ -0,0 +1,59 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chunks and per-type event counts of a recording, collected without decoding events.
+ */
+public class RecordingSummary {
+    public final List<Chunk> chunks;
+    public final Map<String, Long> eventCounts;
+
+    RecordingSummary(List<Chunk> chunks, Map<String, Long> eventCounts) {
+        this.chunks = Collections.unmodifiableList(chunks);
+        this.eventCounts = Collections.unmodifiableMap(eventCounts);
+    }
+
+    public long startNanos() {
+        long start = Long.MAX_VALUE;
+        for (Chunk chunk : chunks) {
+            start = Math.min(start, chunk.startNanos);
+        }
+        return start;
+    }
+
+    public long endNanos() {
+        long end = Long.MIN_VALUE;
+        for (Chunk chunk : chunks) {
+            end = Math.max(end, chunk.endNanos());
+        }
+        return end;
+    }
+
+    public long durationNanos() {
+        return chunks.isEmpty() ? 0 : endNanos() - startNanos();
+    }
+
+    public long bytes() {
+        long bytes = 0;
+        for (Chunk chunk : chunks) {
+            bytes += chunk.size;
+        }
+        return bytes;
+    }
+
+    public long eventCount() {
+        long count = 0;
+        for (long value : eventCounts.values()) {
+            count += value;
+        }
+        return count;
+    }
+}
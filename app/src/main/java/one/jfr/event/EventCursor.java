@@ -0,0 +1,47 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr.event;
+
+/**
+ * Reusable mutable view of the current event, filled by JfrReader.nextEvent(EventCursor).
+ * Type-specific fields are valid only for the event type they belong to.
+ */
+public class EventCursor {
+    public Class<? extends Event> type;
+    public long time;
+    public int tid;
+    public int stackTraceId;
+
+    // ExecutionSample, WallClockSample
+    public int threadState;
+    public int samples;
+
+    // AllocationSample, LiveObject, ContendedLock
+    public int classId;
+    public long allocationSize;
+    public long tlabSize;
+    public long allocationTime;
+    public long duration;
+
+    // MallocEvent
+    public long address;
+    public long size;
+
+    public long value() {
+        if (type == ExecutionSample.class || type == WallClockSample.class) {
+            return samples;
+        } else if (type == AllocationSample.class) {
+            return tlabSize != 0 ? tlabSize : allocationSize;
+        } else if (type == LiveObject.class) {
+            return allocationSize;
+        } else if (type == ContendedLock.class) {
+            return duration;
+        } else if (type == MallocEvent.class) {
+            return size;
+        }
+        return 1;
+    }
+}
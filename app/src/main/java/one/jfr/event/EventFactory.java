@@ -0,0 +1,17 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr.event;
+
+import one.jfr.JfrReader;
+
+/**
+ * Decodes an event of a custom type from the current position of the reader.
+ */
+@FunctionalInterface
+public interface EventFactory<E extends Event> {
+
+    E read(JfrReader jfr);
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr.event;
+
+import one.jfr.DecodingPlan;
+
+/**
+ * Event of any type decoded from the chunk metadata, see JfrReader.registerGenericEvent.
+ * Constant pool references are returned as ids by getLong. References to strings, threads, classes,
+ * symbols and enum-like types are also resolved to strings for getString; other references stay ids only.
+ */
+public class GenericEvent extends Event {
+    public final DecodingPlan plan;
+    private final long[] values;
+    private final String[] strings;
+
+    public GenericEvent(DecodingPlan plan, long time, int tid, int stackTraceId, long[] values, String[] strings) {
+        super(time, tid, stackTraceId);
+        this.plan = plan;
+        this.values = values;
+        this.strings = strings;
+    }
+
+    public String name() {
+        return plan.name();
+    }
+
+    public boolean hasField(String field) {
+        return plan.fieldIndex(field) >= 0;
+    }
+
+    public long getLong(String field) {
+        return getLong(index(field));
+    }
+
+    public long getLong(int index) {
+        return plan.isFloating(index) ? (long) Double.longBitsToDouble(values[index]) : values[index];
+    }
+
+    public int getInt(String field) {
+        return (int) getLong(field);
+    }
+
+    public double getDouble(String field) {
+        return getDouble(index(field));
+    }
+
+    public double getDouble(int index) {
+        return plan.isFloating(index) ? Double.longBitsToDouble(values[index]) : values[index];
+    }
+
+    public boolean getBoolean(String field) {
+        return values[index(field)] != 0;
+    }
+
+    public String getString(String field) {
+        return strings == null ? null : strings[index(field)];
+    }
+
+    private int index(String field) {
+        int index = plan.fieldIndex(field);
+        if (index < 0) {
+            throw new IllegalArgumentException("Field " + field + " is not decoded for " + plan.name());
+        }
+        return index;
+    }
+
+    @Override
+    public boolean sameGroup(Event o) {
+        return o instanceof GenericEvent && ((GenericEvent) o).plan.name().equals(plan.name());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(plan.name())
+                .append("{time=").append(time)
+                .append(",tid=").append(tid)
+                .append(",stackTraceId=").append(stackTraceId);
+        String[] fields = plan.fields();
+        for (int i = 0; i < fields.length; i++) {
+            Object value = strings != null && strings[i] != null ? strings[i]
+                    : plan.isFloating(i) ? (Object) getDouble(i) : (Object) values[i];
+            sb.append(',').append(fields[i]).append('=').append(value);
+        }
+        return sb.append('}').toString();
+    }
+}
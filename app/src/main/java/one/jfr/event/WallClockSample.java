@@ -0,0 +1,14 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr.event;
+
+// profiler.WallClockSample, which is an execution sample of a thread in any state
+public class WallClockSample extends ExecutionSample {
+
+    public WallClockSample(long time, int tid, int stackTraceId, int threadState, int samples) {
+        super(time, tid, stackTraceId, threadState, samples);
+    }
+}
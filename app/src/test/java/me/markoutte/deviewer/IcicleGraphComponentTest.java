@@ -0,0 +1,72 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class IcicleGraphComponentTest {
+
+    // Positions are summed like the component lays out children, so they carry the same rounding
+    private static IcicleGraphComponent.Row equalLeaves(int count) {
+        IcicleGraphComponent.Row row = new IcicleGraphComponent.Row();
+        double width = 1.0 / count;
+        double start = 0.0;
+        for (int i = 0; i < count; i++) {
+            row.add(start, start + width, 1, 1);
+            start += width;
+        }
+        row.trim();
+        return row;
+    }
+
+    @Test
+    void equalSubPixelFramesMakeSingleRun() {
+        int[][] cases = {{12, 6}, {12, 7}, {4005, 801}, {1000, 3}, {7, 1}, {100_000, 999}};
+        for (int[] c : cases) {
+            int count = c[0];
+            int width = c[1];
+            IcicleGraphComponent.Row row = equalLeaves(count);
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                for (int i = 0; i < count; i += Math.max(1, count / 100)) {
+                    assertEquals(0, row.firstOfRun(i, width), "first of run, %d frames at width %d".formatted(count, width));
+                    assertEquals(count - 1, row.lastOfRun(i, width), "last of run, %d frames at width %d".formatted(count, width));
+                }
+            });
+        }
+    }
+
+    @Test
+    void runEndsAtWideFrame() {
+        IcicleGraphComponent.Row row = new IcicleGraphComponent.Row();
+        row.add(0.0, 0.001, 1, 1);
+        row.add(0.001, 0.002, 1, 1);
+        row.add(0.002, 0.5, 1, 1);
+        row.add(0.5, 0.501, 1, 1);
+        row.trim();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals(0, row.firstOfRun(1, 100));
+            assertEquals(1, row.lastOfRun(0, 100));
+            assertEquals(3, row.firstOfRun(3, 100));
+            assertEquals(3, row.lastOfRun(3, 100));
+        });
+    }
+}
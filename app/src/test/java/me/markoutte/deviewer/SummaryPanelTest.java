@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer;
+
+import one.jfr.Chunk;
+import one.jfr.JfrReader;
+import one.jfr.RecordingSummary;
+import one.jfr.TestRecording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.*;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static one.jfr.TestRecording.LONG;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SummaryPanelTest {
+
+    private static final int MESSAGE = 40;
+    private static final int INTERNAL = 41;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void countsEventsOfAllChunks() throws Exception {
+        File file = recording().write(dir.resolve("counts.jfr")).toFile();
+        RecordingSummary summary = JfrReader.readChunkSummary(file.getPath());
+        assertEquals(2, summary.chunks.size());
+
+        Map<String, Long> counts = JfrReader.countEvents(file.getPath(), summary.chunks);
+        assertEquals(Map.of("jdk.ExecutionSample", 9L, "test.Message", 3L), counts);
+        assertEquals(counts, JfrReader.readSummary(file.getPath()).eventCounts);
+
+        String text = countedText(file, summary, summary.chunks);
+        assertTrue(text.contains("12 events"), text);
+        assertTrue(text.contains("jdk.ExecutionSample</span> 9"), text);
+        assertTrue(text.contains("test.Message</span> 3"), text);
+        // the most frequent types come first
+        assertTrue(text.indexOf("jdk.ExecutionSample") < text.indexOf("test.Message"), text);
+    }
+
+    @Test
+    void countsEventsOfSelectedChunksOnly() throws Exception {
+        File file = recording().write(dir.resolve("selected.jfr")).toFile();
+        RecordingSummary summary = JfrReader.readChunkSummary(file.getPath());
+
+        assertEquals(Map.of("jdk.ExecutionSample", 4L), JfrReader.countEvents(file.getPath(), summary.chunks.subList(1, 2)));
+        String text = countedText(file, summary, summary.chunks.subList(1, 2));
+        assertTrue(text.contains("4 events"), text);
+    }
+
+    // The event counts label of the panel once the background counting is done
+    private static String countedText(File file, RecordingSummary summary, List<Chunk> chunks) throws Exception {
+        SummaryPanel[] panel = new SummaryPanel[1];
+        SwingUtilities.invokeAndWait(() -> {
+            panel[0] = new SummaryPanel(file, summary);
+            panel[0].countEvents(file, chunks);
+        });
+        String[] text = new String[1];
+        long deadline = System.currentTimeMillis() + 10_000;
+        do {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> text[0] = ((JLabel) panel[0].getComponent(1)).getText());
+        } while (text[0].startsWith("Counting") && System.currentTimeMillis() < deadline);
+        return text[0];
+    }
+
+    // Metadata, constant pools and events of types that are not jdk.jfr.Event are not counted
+    private static TestRecording recording() {
+        TestRecording recording = new TestRecording();
+        TestRecording.ChunkWriter first = recording.chunk(0, 1_000_000_000L, 0, 1_000_000_000L).javaTypes();
+        first.type(MESSAGE, "test.Message").superType("jdk.jfr.Event").field("startTime", LONG);
+        first.type(INTERNAL, "test.Internal").field("startTime", LONG);
+        for (int i = 0; i < 5; i++) {
+            first.sample(100 + i, 1, 1, 1);
+            first.event(INTERNAL, out -> out.varlong(1));
+        }
+        for (int i = 0; i < 3; i++) {
+            first.event(MESSAGE, out -> out.varlong(200));
+        }
+        first.end();
+
+        TestRecording.ChunkWriter second = recording.chunk(1_000_000_000L, 1_000_000_000L, 1_000_000_000L, 1_000_000_000L).javaTypes();
+        for (int i = 0; i < 4; i++) {
+            second.sample(1_000_000_100L + i, 1, 1, 1);
+        }
+        second.end();
+        return recording;
+    }
+}
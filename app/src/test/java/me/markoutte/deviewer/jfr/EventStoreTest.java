@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.event.AllocationSample;
+import one.jfr.event.ContendedLock;
+import one.jfr.event.EventCursor;
+import one.jfr.event.ExecutionSample;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventStoreTest {
+
+    @Test
+    void rowsAreKeptPerEventType() {
+        EventStore store = new EventStore();
+        EventCursor cursor = new EventCursor();
+        // more rows than the initial capacity, types interleaved
+        for (int i = 0; i < 3000; i++) {
+            cursor.time = i;
+            cursor.tid = i % 3;
+            cursor.stackTraceId = i + 1;
+            if (i % 2 == 0) {
+                cursor.type = ExecutionSample.class;
+                cursor.samples = 2;
+            } else {
+                cursor.type = AllocationSample.class;
+                cursor.classId = 7;
+                cursor.allocationSize = 100;
+                cursor.tlabSize = i % 3 == 0 ? 0 : 4096;
+            }
+            store.add(cursor);
+        }
+
+        EventStore.Columns samples = store.get(ExecutionSample.class);
+        assertEquals(1500, samples.size());
+        assertEquals(2998, samples.time(1499));
+        assertEquals(2999, samples.stackTraceId(1499));
+        assertEquals(2, samples.value(0));
+
+        EventStore.Columns allocations = store.get(AllocationSample.class);
+        assertEquals(1500, allocations.size());
+        assertEquals(1, allocations.time(0));
+        assertEquals(1, allocations.tid(0));
+        assertEquals(7, allocations.classId(0));
+        // allocations outside TLAB have no TLAB size
+        assertEquals(4096, allocations.value(0));
+        assertEquals(100, allocations.value(1));
+
+        assertEquals(0, store.get(ContendedLock.class).size());
+    }
+
+    @Test
+    void forEachVisitsRowsInTimeRangeOfAcceptedThreads() {
+        EventStore store = new EventStore();
+        EventCursor cursor = new EventCursor();
+        cursor.type = ContendedLock.class;
+        for (int i = 0; i < 100; i++) {
+            cursor.time = 1000 + i;
+            cursor.tid = i % 4;
+            cursor.duration = i * 10L;
+            store.add(cursor);
+        }
+        EventStore.Columns columns = store.get(ContendedLock.class);
+
+        List<Long> times = new ArrayList<>();
+        columns.forEach(1010, 1020, tid -> tid == 2, row -> times.add(columns.time(row)));
+        assertEquals(List.of(1010L, 1014L, 1018L), times);
+
+        long[] total = new long[1];
+        columns.forEach(Long.MIN_VALUE, Long.MAX_VALUE, tid -> true, row -> total[0] += columns.value(row));
+        assertEquals(49_500, total[0]);
+
+        // the end of the range is exclusive
+        List<Integer> rows = new ArrayList<>();
+        columns.forEach(1099, 1099, tid -> true, rows::add);
+        columns.forEach(1098, 1099, tid -> true, rows::add);
+        assertEquals(List.of(98), rows);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.jfr;
+
+import one.jfr.Chunk;
+import one.jfr.JfrReader;
+import one.jfr.TestRecording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeRangeTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void selectsOverlappingChunksOnly() throws Exception {
+        List<Chunk> chunks = chunks(24_000_000L);
+
+        assertEquals(chunks, TimeRange.ALL.select(chunks));
+        // a range that ends where a chunk starts does not touch it
+        assertEquals(chunks.subList(1, 2), new TimeRange(SECOND, 2 * SECOND).select(chunks));
+        assertEquals(chunks.subList(1, 2), new TimeRange(SECOND, SECOND + 1).select(chunks));
+        assertEquals(chunks.subList(0, 1), new TimeRange(0, SECOND).select(chunks));
+        assertEquals(chunks.subList(0, 2), new TimeRange(SECOND - 1, SECOND + 1).select(chunks));
+        assertEquals(chunks.subList(0, 2), new TimeRange(SECOND / 2, SECOND * 3 / 2).select(chunks));
+        assertEquals(List.of(), new TimeRange(3 * SECOND, 4 * SECOND).select(chunks));
+    }
+
+    @Test
+    void rangeCoveringChunkEdgesDoesNotFilterEvents() throws Exception {
+        for (Chunk chunk : chunks(2_995_200_000L)) {
+            TimeRange whole = new TimeRange(chunk.startNanos, chunk.endNanos());
+            assertEquals(Long.MIN_VALUE, whole.startTicks(chunk));
+            assertEquals(Long.MAX_VALUE, whole.endTicks(chunk));
+            assertEquals(Long.MIN_VALUE, TimeRange.ALL.startTicks(chunk));
+            assertEquals(Long.MAX_VALUE, TimeRange.ALL.endTicks(chunk));
+
+            TimeRange inner = new TimeRange(chunk.startNanos + 1, chunk.endNanos() - 1);
+            assertEquals(chunk.startTicks + 3, inner.startTicks(chunk));
+            assertTrue(inner.endTicks(chunk) < Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    void adjacentRangesSplitEventsByWallClock() throws Exception {
+        for (long ticksPerSec : new long[] {1_000_000_000L, 24_000_000L, 2_995_200_000L, 1_000_000_007L}) {
+            Chunk chunk = chunks(ticksPerSec).get(1);
+            long ticks = ticksPerSec / 1000;
+            for (long split = chunk.startNanos; split <= chunk.startNanos + 1_000_000; split += 7919) {
+                TimeRange before = new TimeRange(Long.MIN_VALUE, split);
+                TimeRange after = new TimeRange(split, Long.MAX_VALUE);
+                for (long t = chunk.startTicks; t < chunk.startTicks + ticks; t += 17) {
+                    boolean inBefore = t >= before.startTicks(chunk) && t < before.endTicks(chunk);
+                    boolean inAfter = t >= after.startTicks(chunk) && t < after.endTicks(chunk);
+                    // the event happens at or after the split exactly when its tick, scaled to nanoseconds, is not less
+                    boolean late = (t - chunk.startTicks) * SECOND >= (split - chunk.startNanos) * ticksPerSec;
+                    assertEquals(!late, inBefore, "tick " + t + " split " + split + " at " + ticksPerSec);
+                    assertEquals(late, inAfter, "tick " + t + " split " + split + " at " + ticksPerSec);
+                }
+            }
+        }
+    }
+
+    // Three adjacent one second chunks
+    private List<Chunk> chunks(long ticksPerSec) throws Exception {
+        TestRecording recording = new TestRecording();
+        for (int i = 0; i < 3; i++) {
+            recording.chunk(i * SECOND, SECOND, 1000 + i * ticksPerSec, ticksPerSec).javaTypes().end();
+        }
+        return JfrReader.readChunks(recording.write(dir.resolve("range-" + ticksPerSec + ".jfr")).toString());
+    }
+}
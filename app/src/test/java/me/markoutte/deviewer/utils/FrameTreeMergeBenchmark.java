@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Measures how building and merging partial call trees scales with the number of cores.
+ *
+ * Every synthetic chunk gets its own tree, as ProfileLoader does, then trees are merged by
+ * {@link FrameTree#merge(List, ForkJoinPool)} on pools from one thread up to all available cores.
+ * Adding all stacks to one tree on the calling thread is the baseline. Run it with {@code gradle mergeBenchmark},
+ * arguments are the number of chunks and stacks per chunk.
+ */
+public class FrameTreeMergeBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int chunks = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int stacksPerChunk = args.length > 1 ? Integer.parseInt(args[1]) : 60_000;
+        int[][][] data = chunks(chunks, stacksPerChunk);
+        List<Integer> parallelism = new ArrayList<>();
+        for (int p = 1; p < Runtime.getRuntime().availableProcessors(); p *= 2) {
+            parallelism.add(p);
+        }
+        parallelism.add(Runtime.getRuntime().availableProcessors());
+
+        System.out.printf("%d chunks, %d stacks each, %d cores%n", chunks, stacksPerChunk, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-12s %10s %10s %10s %8s%n", "threads", "build, ms", "merge, ms", "total, ms", "speedup");
+        int[] expected = new int[1];
+        long baseline = best(() -> {
+            FrameTree tree = new FrameTree(0);
+            for (int[][] chunk : data) {
+                for (int[] stack : chunk) {
+                    tree.add(stack, 1);
+                }
+            }
+            expected[0] = tree.size();
+            return new long[] {0, 0};
+        });
+        System.out.printf("%-12s %10s %10s %10d %8s%n", "sequential", "-", "-", baseline, "1.00");
+        for (int threads : parallelism) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long[] phases = new long[2];
+            long total = best(() -> {
+                long start = System.nanoTime();
+                List<ForkJoinTask<FrameTree>> tasks = new ArrayList<>();
+                for (int[][] chunk : data) {
+                    tasks.add(pool.submit(() -> {
+                        FrameTree tree = new FrameTree(0);
+                        for (int[] stack : chunk) {
+                            tree.add(stack, 1);
+                        }
+                        return tree;
+                    }));
+                }
+                List<FrameTree> partials = new ArrayList<>();
+                for (ForkJoinTask<FrameTree> task : tasks) {
+                    partials.add(task.join());
+                }
+                long built = System.nanoTime();
+                FrameTree tree = FrameTree.merge(partials, pool);
+                long merged = System.nanoTime();
+                if (tree.size() != expected[0]) {
+                    throw new IllegalStateException("Merged tree has " + tree.size() + " nodes instead of " + expected[0]);
+                }
+                return new long[] {(built - start) / 1_000_000, (merged - built) / 1_000_000};
+            }, phases);
+            pool.shutdown();
+            System.out.printf("%-12d %10d %10d %10d %8.2f%n", threads, phases[0], phases[1], total, baseline / (double) total);
+        }
+    }
+
+    // Best of several rounds in milliseconds, phases of the best round are copied into the array
+    private static long best(Round round, long[]... phases) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            long[] result = round.run();
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            if (elapsed < best) {
+                best = elapsed;
+                if (phases.length > 0) {
+                    System.arraycopy(result, 0, phases[0], 0, result.length);
+                }
+            }
+        }
+        return best;
+    }
+
+    // Chunks share a pool of stacks with a skewed distribution, so partial trees overlap like in a real profile
+    private static int[][][] chunks(int chunks, int stacksPerChunk) {
+        Random random = new Random(1);
+        int[][] stacks = new int[20_000][];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = new int[5 + random.nextInt(40)];
+            for (int j = 0; j < stacks[i].length; j++) {
+                stacks[i][j] = 1 + random.nextInt(j < 5 ? 4 : 300);
+            }
+        }
+        int[][][] data = new int[chunks][stacksPerChunk][];
+        for (int c = 0; c < chunks; c++) {
+            Random chunkRandom = new Random(c);
+            for (int i = 0; i < stacksPerChunk; i++) {
+                data[c][i] = stacks[(int) (stacks.length * Math.pow(chunkRandom.nextDouble(), 2))];
+            }
+        }
+        return data;
+    }
+
+    private interface Round {
+        long[] run() throws Exception;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrameTreeTest {
+
+    @Test
+    void metricWithoutWeightsReadsAsZero() {
+        FrameTree tree = new FrameTree(0, 3);
+        int node = tree.add(new int[] {1, 2}, new long[] {5, 0, 0});
+        assertEquals(5, tree.total(0, FrameTree.ROOT));
+        assertEquals(5, tree.self(0, node));
+        assertEquals(0, tree.total(1, node));
+        assertEquals(0, tree.self(2, node));
+        assertEquals(1, tree.freeze(1).size());
+        assertEquals(3, tree.freeze(0).size());
+    }
+
+    @Test
+    void mergeAddsMetricsOfOtherTree() {
+        FrameTree tree = new FrameTree(0, 2);
+        tree.add(new int[] {1}, 0, 3);
+        FrameTree other = new FrameTree(0, 2);
+        int node = other.add(new int[] {1, 2}, 1, 7);
+        tree.merge(other);
+        assertEquals(3, tree.total(0, FrameTree.ROOT));
+        assertEquals(7, tree.total(1, FrameTree.ROOT));
+        int merged = tree.find(tree.find(FrameTree.ROOT, 1), 2);
+        assertEquals(7, tree.self(1, merged));
+        assertEquals(0, tree.self(0, merged));
+        assertEquals(other.frame(node), tree.frame(merged));
+    }
+
+    @Test
+    void parallelMergeEqualsSequentialMerge() {
+        int count = 13;
+        FrameTree sequential = partials(count).get(0);
+        List<FrameTree> rest = partials(count);
+        for (int i = 1; i < count; i++) {
+            sequential.merge(rest.get(i));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FrameTree parallel = FrameTree.merge(partials(count), pool);
+            assertEquals(sequential.size(), parallel.size());
+            for (int node = 0; node < sequential.size(); node++) {
+                assertEquals(sequential.frame(node), parallel.frame(node), "frame of " + node);
+                assertEquals(sequential.parent(node), parallel.parent(node), "parent of " + node);
+                assertEquals(sequential.firstChild(node), parallel.firstChild(node), "first child of " + node);
+                assertEquals(sequential.nextSibling(node), parallel.nextSibling(node), "next sibling of " + node);
+                for (int metric = 0; metric < sequential.metrics(); metric++) {
+                    assertEquals(sequential.total(metric, node), parallel.total(metric, node), "total of " + node);
+                    assertEquals(sequential.self(metric, node), parallel.self(metric, node), "self of " + node);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Partial trees share frames, so merging both finds existing nodes and creates new ones;
+    // some trees have no weights of some metrics at all
+    private static List<FrameTree> partials(int count) {
+        List<FrameTree> trees = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Random random = new Random(i);
+            FrameTree tree = new FrameTree(0, 3);
+            for (int stack = 0; stack < 200; stack++) {
+                int[] frames = new int[1 + random.nextInt(8)];
+                for (int depth = 0; depth < frames.length; depth++) {
+                    frames[depth] = 1 + random.nextInt(depth < 2 ? 3 : 20);
+                }
+                long[] weights = new long[3];
+                for (int metric = 0; metric < weights.length; metric++) {
+                    if ((i + metric) % 3 != 0) {
+                        weights[metric] = random.nextInt(100);
+                    }
+                }
+                tree.add(frames, weights);
+            }
+            trees.add(tree);
+        }
+        return trees;
+    }
+}
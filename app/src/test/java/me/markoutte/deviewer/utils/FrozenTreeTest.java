@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025 Maksim Pelevin and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.markoutte.deviewer.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrozenTreeTest {
+
+    @Test
+    void rollupCountsRecursiveFrameOncePerStack() {
+        FrameTree tree = new FrameTree(0);
+        tree.add(new int[] {1, 1, 1}, 2);
+        tree.add(new int[] {1, 2, 1}, 3);
+        tree.add(new int[] {2}, 5);
+        FrameTree.Rollup rollup = tree.freeze(0).rollup();
+
+        // nodes of frame 1: [1] = 5, [1, 1] = 2, [1, 1, 1] = 2, [1, 2, 1] = 3
+        assertEquals(12, rollup.total(1));
+        assertEquals(5, rollup.inclusive(1));
+        assertEquals(5, rollup.self(1));
+        // nodes of frame 2: [1, 2] = 3, [2] = 5
+        assertEquals(8, rollup.total(2));
+        assertEquals(8, rollup.inclusive(2));
+        assertEquals(5, rollup.self(2));
+        assertEquals(10, rollup.inclusive(0));
+        assertEquals(0, rollup.self(0));
+    }
+
+    @Test
+    void rollupOfSubtreeCountsFromItsRoot() {
+        FrameTree tree = new FrameTree(0);
+        tree.add(new int[] {1, 2, 1}, 4);
+        tree.add(new int[] {3, 1}, 6);
+        FrozenTree frozen = tree.freeze(0);
+        int node = frozen.find(frozen.find(FrozenTree.ROOT, 1), 2);
+        FrameTree.Rollup rollup = frozen.rollup(node);
+
+        assertEquals(4, rollup.total(1));
+        assertEquals(4, rollup.inclusive(1));
+        assertEquals(4, rollup.self(1));
+        assertEquals(4, rollup.inclusive(2));
+        assertEquals(0, rollup.self(2));
+        assertEquals(0, rollup.total(3));
+    }
+}
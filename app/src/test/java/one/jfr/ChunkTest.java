@@ -0,0 +1,78 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkTest {
+
+    // nanosecond clock, 24 MHz counter of ARM machines, 3 GHz TSC and a frequency that divides nothing
+    private static final long[] FREQUENCIES = {1_000_000_000L, 24_000_000L, 2_995_200_000L, 1_000_000_007L};
+    private static final long START_NANOS = 1_700_000_000_000_000_000L;
+    private static final long START_TICKS = 123_456_789_000L;
+    private static final long DURATION = 10_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void chunkBoundariesMapToExactTicks() throws Exception {
+        for (Chunk chunk : chunks()) {
+            long durationTicks = (DURATION * chunk.ticksPerSec + 999_999_999L) / 1_000_000_000L;
+            assertEquals(START_TICKS, chunk.nanosToTicks(chunk.startNanos));
+            assertEquals(START_TICKS + durationTicks, chunk.nanosToTicks(chunk.endNanos()));
+            assertEquals(START_TICKS + 3 * chunk.ticksPerSec, chunk.nanosToTicks(chunk.startNanos + 3_000_000_000L));
+            assertEquals(START_TICKS - chunk.ticksPerSec, chunk.nanosToTicks(chunk.startNanos - 1_000_000_000L));
+        }
+    }
+
+    @Test
+    void nanosToTicksReturnsFirstTickNotEarlier() throws Exception {
+        for (Chunk chunk : chunks()) {
+            for (long delta = 0; delta <= DURATION; delta += 997) {
+                long ticks = chunk.nanosToTicks(chunk.startNanos + delta) - START_TICKS;
+                // tick k happens at k * 1e9 / ticksPerSec nanoseconds since the chunk start
+                assertTrue(ticks * 1_000_000_000L >= delta * chunk.ticksPerSec);
+                assertTrue((ticks - 1) * 1_000_000_000L < delta * chunk.ticksPerSec);
+            }
+        }
+    }
+
+    @Test
+    void ticksRoundTripThroughNanos() throws Exception {
+        for (Chunk chunk : chunks()) {
+            long nanosPerTick = (1_000_000_000L + chunk.ticksPerSec - 1) / chunk.ticksPerSec;
+            for (long ticks = 0; ticks < DURATION * chunk.ticksPerSec / 1_000_000_000L; ticks += 13) {
+                long nanos = chunk.startNanos + chunk.ticksToNanos(ticks);
+                long back = chunk.nanosToTicks(nanos) - START_TICKS;
+                if (chunk.ticksPerSec <= 1_000_000_000L) {
+                    assertEquals(ticks, back);
+                } else {
+                    // several ticks fall into the same nanosecond
+                    assertTrue(back <= ticks && back >= ticks - chunk.ticksPerSec / 1_000_000_000L - 1);
+                }
+                assertTrue(chunk.ticksToNanos(ticks + 1) - chunk.ticksToNanos(ticks) <= nanosPerTick);
+            }
+        }
+    }
+
+    private List<Chunk> chunks() throws Exception {
+        TestRecording recording = new TestRecording();
+        for (long ticksPerSec : FREQUENCIES) {
+            recording.chunk(START_NANOS, DURATION, START_TICKS, ticksPerSec).javaTypes().end();
+        }
+        List<Chunk> chunks = JfrReader.readChunks(recording.write(dir.resolve("chunks.jfr")).toString());
+        assertEquals(FREQUENCIES.length, chunks.size());
+        return chunks;
+    }
+}
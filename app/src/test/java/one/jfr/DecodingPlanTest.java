@@ -0,0 +1,177 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import one.jfr.event.Event;
+import one.jfr.event.EventCursor;
+import one.jfr.event.ExecutionSample;
+import one.jfr.event.GenericEvent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import static one.jfr.TestRecording.BOOLEAN;
+import static one.jfr.TestRecording.CLASS;
+import static one.jfr.TestRecording.DOUBLE;
+import static one.jfr.TestRecording.FLOAT;
+import static one.jfr.TestRecording.INT;
+import static one.jfr.TestRecording.LONG;
+import static one.jfr.TestRecording.STRING;
+import static one.jfr.TestRecording.SYMBOL;
+import static one.jfr.TestRecording.THREAD;
+import static one.jfr.TestRecording.THREAD_STATE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecodingPlanTest {
+
+    private static final int ITEM = 30;
+    private static final int BASE = 31;
+    private static final int COLOR = 32;
+    private static final int OTHER = 33;
+    private static final int EVENT = 40;
+
+    @Test
+    void allFieldsAreDecoded() throws Exception {
+        try (JfrReader reader = new JfrReader(ByteBuffer.wrap(recording()))) {
+            reader.registerGenericEvent("test.Event");
+
+            GenericEvent first = (GenericEvent) reader.readEvent();
+            assertEquals(100, first.time);
+            assertEquals(1, first.tid);
+            assertEquals("main", first.getString("eventThread"));
+            assertEquals("hello", first.getString("message"));
+            assertEquals("label-one", first.getString("label"));
+            assertEquals(1, first.getLong("label"));
+            assertEquals(0.5, first.getDouble("ratio"));
+            assertEquals(2.25, first.getDouble("total"));
+            assertTrue(first.getBoolean("flag"));
+            assertEquals("GREEN", first.getString("color"));
+            assertEquals("pkg.Bar", first.getString("type"));
+            // references to pools without a string form stay ids
+            assertEquals(5, first.getLong("other"));
+            assertNull(first.getString("other"));
+            assertEquals(123_456_789_012L, first.getLong("count"));
+            assertEquals(42, first.getInt("last"));
+            // arrays and nested structures are skipped
+            assertFalse(first.hasField("items"));
+            assertFalse(first.hasField("base"));
+
+            GenericEvent second = (GenericEvent) reader.readEvent();
+            assertEquals("", second.getString("message"));
+            assertEquals("label-two", second.getString("label"));
+            assertEquals(7, second.getLong("count"));
+            assertEquals(8, second.getInt("last"));
+
+            Event sample = reader.readEvent();
+            assertTrue(sample instanceof ExecutionSample);
+            assertEquals(300, sample.time);
+            assertNull(reader.readEvent());
+        }
+    }
+
+    @Test
+    void onlyRequestedFieldsAreDecoded() throws Exception {
+        try (JfrReader reader = new JfrReader(ByteBuffer.wrap(recording()))) {
+            reader.registerGenericEvent("test.Event", "flag");
+
+            GenericEvent first = (GenericEvent) reader.readEvent();
+            assertArrayEquals(new String[] {"startTime", "eventThread", "flag"}, first.plan.fields());
+            assertTrue(first.getBoolean("flag"));
+            assertEquals(100, first.time);
+            assertFalse(first.hasField("count"));
+
+            // the rest of an event is not decoded, the next one is still found by the event size
+            GenericEvent second = (GenericEvent) reader.readEvent();
+            assertFalse(second.getBoolean("flag"));
+            assertEquals(200, second.time);
+            assertEquals(300, reader.readEvent().time);
+        }
+    }
+
+    @Test
+    void planCompiledFromMetadataListsRequestedFields() throws Exception {
+        try (JfrReader reader = new JfrReader(ByteBuffer.wrap(recording()))) {
+            DecodingPlan plan = DecodingPlan.compile(reader.typesByName.get("test.Event"), reader.types, Set.of("count", "label"));
+            assertArrayEquals(new String[] {"startTime", "eventThread", "label", "count"}, plan.fields());
+            assertEquals(3, plan.fieldIndex("count"));
+            assertEquals(-1, plan.fieldIndex("last"));
+            assertFalse(plan.isFloating(3));
+
+            DecodingPlan all = DecodingPlan.compile(reader.typesByName.get("test.Event"), reader.types, Set.of());
+            assertTrue(all.isFloating(all.fieldIndex("ratio")));
+            assertTrue(all.isFloating(all.fieldIndex("total")));
+            assertEquals("test.Event", all.name());
+        }
+    }
+
+    @Test
+    void registeredBuiltInTypeIsDecodedAsGenericEvent() throws Exception {
+        try (JfrReader reader = new JfrReader(ByteBuffer.wrap(recording()))) {
+            reader.registerGenericEvent("jdk.ExecutionSample");
+            Event event = reader.readEvent(GenericEvent.class);
+            assertTrue(event instanceof GenericEvent);
+            assertEquals(300, event.time);
+            assertEquals("STATE_RUNNABLE", ((GenericEvent) event).getString("state"));
+            assertEquals("main", ((GenericEvent) event).getString("sampledThread"));
+        }
+        try (JfrReader reader = new JfrReader(ByteBuffer.wrap(recording()))) {
+            reader.registerGenericEvent("jdk.ExecutionSample");
+            // the cursor cannot hold a generic event, so it skips the type altogether
+            assertFalse(reader.nextEvent(new EventCursor()));
+        }
+    }
+
+    private static byte[] recording() {
+        TestRecording.ChunkWriter chunk = new TestRecording().chunk(0, 1_000_000, 0, 1_000_000_000).javaTypes();
+        chunk.type(ITEM, "test.Item").field("a", INT).field("b", STRING);
+        chunk.type(BASE, "test.Base").superType("test.Root").field("x", LONG);
+        chunk.type(COLOR, "test.Color").simpleType().field("name", STRING);
+        chunk.type(OTHER, "test.Other").field("v", LONG);
+        chunk.type(EVENT, "test.Event").superType("jdk.jfr.Event")
+                .field("startTime", LONG)
+                .field("eventThread", THREAD, true, false)
+                .field("items", ITEM, false, true)
+                .field("message", STRING)
+                .field("label", STRING, true, false)
+                .field("ratio", FLOAT)
+                .field("total", DOUBLE)
+                .field("flag", BOOLEAN)
+                .field("base", BASE)
+                .field("color", COLOR, true, false)
+                .field("type", CLASS, true, false)
+                .field("other", OTHER, true, false)
+                .field("count", LONG)
+                .field("last", INT);
+        return chunk
+                .event(EVENT, out -> out
+                        .varlong(100).varlong(1)
+                        .varint(2).varint(1).string("x").varint(2).string("yy")
+                        .string("hello").varlong(1).f32(0.5f).f64(2.25).raw(1)
+                        .varlong(77).varlong(1).varlong(1).varlong(5)
+                        .varlong(123_456_789_012L).varint(42))
+                .event(EVENT, out -> out
+                        .varlong(200).varlong(1)
+                        .varint(0)
+                        .raw(1).varlong(2).f32(1.5f).f64(-1).raw(0)
+                        .varlong(0).varlong(0).varlong(1).varlong(6)
+                        .varlong(7).varint(8))
+                .sample(300, 1, 0, 1)
+                .pool(STRING, 2, out -> out.varlong(1).string("label-one").varlong(2).string("label-two"))
+                .pool(THREAD, 1, out -> out.varlong(1).string("os-main").varint(11).string("main").varlong(1).varlong(0))
+                .pool(SYMBOL, 1, out -> out.varlong(4).string("pkg/Bar"))
+                .pool(CLASS, 1, out -> out.varlong(1).varlong(0).varlong(4).varlong(0).varint(1))
+                .pool(COLOR, 2, out -> out.varlong(0).string("RED").varlong(1).string("GREEN"))
+                .pool(OTHER, 2, out -> out.varlong(5).varlong(55).varlong(6).varlong(66))
+                .pool(THREAD_STATE, 1, out -> out.varlong(1).string("STATE_RUNNABLE"))
+                .end()
+                .toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import one.jfr.event.Event;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static one.jfr.TestRecording.LONG;
+import static one.jfr.TestRecording.STRING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventFactoryTest {
+
+    private static final int MESSAGE = 40;
+
+    public static class Message extends Event {
+        public final String text;
+        public final long count;
+
+        public Message(JfrReader jfr) {
+            super(jfr.getVarlong(), 0, 0);
+            this.text = jfr.getString();
+            this.count = jfr.getVarlong();
+        }
+    }
+
+    public static class Broken extends Event {
+        public Broken(JfrReader jfr) {
+            super(0, 0, 0);
+            throw new IllegalStateException("cannot decode");
+        }
+    }
+
+    public static class NoConstructor extends Event {
+        public NoConstructor() {
+            super(0, 0, 0);
+        }
+    }
+
+    @Test
+    void registeredClassIsBuiltByItsConstructor() throws Exception {
+        try (JfrReader reader = new JfrReader(ByteBuffer.wrap(recording()))) {
+            reader.registerEvent("test.Message", Message.class);
+            Message first = reader.readEvent(Message.class);
+            assertEquals(100, first.time);
+            assertEquals("hello", first.text);
+            assertEquals(3, first.count);
+
+            Message second = reader.readEvent(Message.class);
+            assertEquals("", second.text);
+            assertNull(reader.readEvent(Message.class));
+        }
+    }
+
+    @Test
+    void constructorExceptionsReachTheCaller() throws Exception {
+        try (JfrReader reader = new JfrReader(ByteBuffer.wrap(recording()))) {
+            reader.registerEvent("test.Message", Broken.class);
+            IllegalStateException e = assertThrows(IllegalStateException.class, reader::readEvent);
+            assertEquals("cannot decode", e.getMessage());
+        }
+    }
+
+    @Test
+    void classWithoutReaderConstructorIsRejected() throws Exception {
+        try (JfrReader reader = new JfrReader(ByteBuffer.wrap(recording()))) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> reader.registerEvent("test.Message", NoConstructor.class));
+            assertTrue(e.getCause() instanceof ReflectiveOperationException);
+        }
+    }
+
+    private static byte[] recording() {
+        TestRecording.ChunkWriter chunk = new TestRecording().chunk(0, 1_000_000, 0, 1_000_000_000).javaTypes();
+        chunk.type(MESSAGE, "test.Message").superType("jdk.jfr.Event")
+                .field("startTime", LONG)
+                .field("text", STRING)
+                .field("count", LONG);
+        return chunk
+                .event(MESSAGE, out -> out.varlong(100).string("hello").varlong(3))
+                .event(MESSAGE, out -> out.varlong(200).raw(1).varlong(4))
+                .end()
+                .toByteArray();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import one.jfr.event.Event;
+import one.jfr.event.ExecutionSample;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static one.jfr.TestRecording.CLASS;
+import static one.jfr.TestRecording.METHOD;
+import static one.jfr.TestRecording.STACK_TRACE;
+import static one.jfr.TestRecording.STRING;
+import static one.jfr.TestRecording.SYMBOL;
+import static one.jfr.TestRecording.THREAD;
+import static one.jfr.TestRecording.THREAD_STATE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class LazyDictionaryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void entryIsDecodedOnceAtFirstGet() {
+        List<Long> decoded = new ArrayList<>();
+        LazyDictionary<String> dictionary = new LazyDictionary<>(offset -> {
+            decoded.add(offset);
+            return "at " + offset;
+        });
+        dictionary.putOffset(1, 100);
+        dictionary.putOffset(2, 200);
+        assertEquals(2, dictionary.size());
+        assertEquals(List.of(), decoded);
+
+        assertEquals("at 100", dictionary.get(1));
+        assertEquals("at 100", dictionary.get(1));
+        assertNull(dictionary.get(3));
+        assertEquals(List.of(100L), decoded);
+
+        // a new offset of the same key replaces the decoded value
+        dictionary.putOffset(1, 300);
+        assertEquals("at 300", dictionary.get(1));
+
+        Set<Long> keys = new HashSet<>();
+        dictionary.forEach((key, value) -> keys.add(key));
+        assertEquals(Set.of(1L, 2L), keys);
+        assertEquals(List.of(100L, 300L, 200L), decoded);
+
+        dictionary.clear();
+        assertEquals(0, dictionary.size());
+        assertNull(dictionary.get(2));
+    }
+
+    @Test
+    void lazyFileReaderDecodesSameConstantsAsEagerReader() throws Exception {
+        String file = recording().write(dir.resolve("pools.jfr")).toString();
+        try (JfrReader eager = new JfrReader(file, false, false); JfrReader lazy = new JfrReader(file, true, true)) {
+            assertEquals(3, lazy.stackTraces.size());
+            assertSameConstants(eager, lazy);
+            assertSameEvents(eager, lazy);
+        }
+    }
+
+    @Test
+    void lazyBufferReaderDecodesSameConstantsAsEagerReader() throws Exception {
+        byte[] bytes = recording().toByteArray();
+        try (JfrReader eager = new JfrReader(ByteBuffer.wrap(bytes)); JfrReader lazy = new JfrReader(ByteBuffer.wrap(bytes), true)) {
+            assertSameConstants(eager, lazy);
+            assertSameEvents(eager, lazy);
+        }
+    }
+
+    @Test
+    void lookupDoesNotMoveReadPosition() throws Exception {
+        String file = recording().write(dir.resolve("position.jfr")).toString();
+        try (JfrReader lazy = new JfrReader(file, true, true)) {
+            List<Long> times = new ArrayList<>();
+            // a lookup that loses the read position makes the reader loop over the same events
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                Event event;
+                while ((event = lazy.readEvent(ExecutionSample.class)) != null && times.size() < 100) {
+                    // every event decodes constants at offsets far behind the current position
+                    assertNotNull(lazy.stackTraces.get(event.stackTraceId));
+                    assertEquals("main", lazy.threads.get(event.tid));
+                    times.add(event.time);
+                }
+            });
+            assertEquals(List.of(1000L, 2000L, 3000L, 4000L), times);
+        }
+    }
+
+    private static void assertSameConstants(JfrReader eager, JfrReader lazy) {
+        for (long id = 1; id <= 3; id++) {
+            StackTrace expected = eager.stackTraces.get(id);
+            StackTrace actual = lazy.stackTraces.get(id);
+            assertArrayEquals(expected.methods, actual.methods);
+            assertArrayEquals(expected.types, actual.types);
+            assertArrayEquals(expected.locations, actual.locations);
+        }
+        for (long id = 1; id <= 2; id++) {
+            MethodRef expected = eager.methods.get(id);
+            MethodRef actual = lazy.methods.get(id);
+            assertEquals(expected.cls, actual.cls);
+            assertEquals(expected.name, actual.name);
+            assertEquals(expected.sig, actual.sig);
+        }
+        for (long id = 1; id <= 4; id++) {
+            assertArrayEquals(eager.symbols.get(id), lazy.symbols.get(id));
+        }
+        assertEquals("pkg/Bar", new String(lazy.symbols.get(4), StandardCharsets.UTF_8));
+        assertEquals("gamma", lazy.strings.get(3));
+        assertEquals(eager.strings.get(2), lazy.strings.get(2));
+        assertNull(lazy.stackTraces.get(4));
+        assertArrayEquals(new long[] {1, 2}, lazy.stackTraces.get(1).methods);
+        assertArrayEquals(new int[] {10 << 16 | 5, 20 << 16 | 7}, lazy.stackTraces.get(1).locations);
+    }
+
+    private static void assertSameEvents(JfrReader eager, JfrReader lazy) throws Exception {
+        ExecutionSample expected;
+        while ((expected = eager.readEvent(ExecutionSample.class)) != null) {
+            ExecutionSample actual = lazy.readEvent(ExecutionSample.class);
+            assertNotNull(actual);
+            assertEquals(expected.time, actual.time);
+            assertEquals(expected.stackTraceId, actual.stackTraceId);
+            assertEquals(expected.threadState, actual.threadState);
+        }
+        assertNull(lazy.readEvent(ExecutionSample.class));
+    }
+
+    // Pools go after events in a chunk, so every lookup of a lazy reader goes back in the file
+    static TestRecording recording() {
+        return new TestRecording().chunk(0, 1_000_000, 0, 1_000_000_000).javaTypes()
+                .sample(1000, 1, 1, 1)
+                .sample(2000, 1, 2, 1)
+                .sample(3000, 1, 3, 1)
+                .sample(4000, 1, 1, 1)
+                .pool(STRING, 3, out -> out
+                        .varlong(1).string("alpha")
+                        .varlong(2).string("beta")
+                        .varlong(3).string("gamma"))
+                .pool(SYMBOL, 4, out -> out
+                        .varlong(1).string("Foo")
+                        .varlong(2).string("run")
+                        .varlong(3).string("()V")
+                        .varlong(4).string("pkg/Bar"))
+                .pool(CLASS, 1, out -> out.varlong(1).varlong(0).varlong(4).varlong(0).varint(1))
+                .pool(METHOD, 2, out -> out
+                        .varlong(1).varlong(1).varlong(2).varlong(3).varint(1).varint(0)
+                        .varlong(2).varlong(1).varlong(1).varlong(3).varint(9).varint(0))
+                .pool(STACK_TRACE, 3, out -> out
+                        .varlong(1).varint(0).varint(2)
+                        .varlong(1).varint(10).varint(5).raw(1)
+                        .varlong(2).varint(20).varint(7).raw(0)
+                        .varlong(2).varint(0).varint(1)
+                        .varlong(2).varint(30).varint(0).raw(1)
+                        .varlong(3).varint(1).varint(0))
+                .pool(THREAD, 1, out -> out.varlong(1).string("os-main").varint(11).string("main").varlong(1).varlong(0))
+                .pool(THREAD_STATE, 1, out -> out.varlong(1).string("STATE_RUNNABLE"))
+                .end();
+    }
+}
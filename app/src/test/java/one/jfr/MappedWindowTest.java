@@ -0,0 +1,146 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import one.jfr.event.Event;
+import one.jfr.event.GenericEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static one.jfr.TestRecording.LONG;
+import static one.jfr.TestRecording.STACK_TRACE;
+import static one.jfr.TestRecording.STRING;
+import static one.jfr.TestRecording.THREAD;
+import static one.jfr.TestRecording.THREAD_STATE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedWindowTest {
+
+    private static final int MESSAGE = 40;
+    private static final int WINDOW = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void smallMappingWindowsReadSameEventsAsWholeFile() throws Exception {
+        Path file = recording().write(dir.resolve("windows.jfr"));
+        assertTrue(Files.size(file) > 10 * WINDOW);
+        List<String> expected = events(new JfrReader(ByteBuffer.wrap(Files.readAllBytes(file))));
+        assertEquals(2 * 600, expected.size());
+
+        assertEquals(expected, events(new JfrReader(file.toString(), true, false, WINDOW)));
+        assertEquals(expected, events(new JfrReader(file.toString(), true, true, WINDOW)));
+    }
+
+    @Test
+    void smallReadBufferReadsSameEventsAsWholeFile() throws Exception {
+        Path file = recording().write(dir.resolve("buffer.jfr"));
+        List<String> expected = events(new JfrReader(ByteBuffer.wrap(Files.readAllBytes(file))));
+
+        assertEquals(expected, events(new JfrReader(file.toString(), false, false, WINDOW)));
+    }
+
+    @Test
+    void chunkReaderReadsOnlyItsChunk() throws Exception {
+        Path file = recording().write(dir.resolve("chunks.jfr"));
+        byte[] bytes = Files.readAllBytes(file);
+        List<Chunk> chunks = JfrReader.readChunks(file.toString());
+        assertEquals(2, chunks.size());
+
+        List<String> all = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            // the same chunk as the loader maps it when it fits a single buffer
+            ByteBuffer mapped = ByteBuffer.wrap(bytes, (int) chunk.offset, (int) chunk.size).slice();
+            List<String> expected = events(new JfrReader(mapped, true));
+            assertEquals(600, expected.size());
+
+            assertEquals(expected, events(new JfrReader(file.toString(), chunk, WINDOW)));
+            assertEquals(expected, events(new JfrReader(file.toString(), chunk)));
+            all.addAll(expected);
+        }
+        assertEquals(events(new JfrReader(ByteBuffer.wrap(bytes))), all);
+    }
+
+    @Test
+    void lazyLookupsMapTheirOwnWindows() throws Exception {
+        Path file = recording().write(dir.resolve("lookups.jfr"));
+        try (JfrReader eager = new JfrReader(file.toString(), true, false, WINDOW);
+             JfrReader lazy = new JfrReader(file.toString(), true, true, WINDOW)) {
+            for (long id = 1; id <= 100; id++) {
+                assertArrayEquals(eager.stackTraces.get(id).methods, lazy.stackTraces.get(id).methods);
+                assertEquals(eager.strings.get(id), lazy.strings.get(id));
+            }
+            // the lookups above did not disturb reading from the start of the chunk
+            assertEquals(1000, lazy.readEvent().time);
+        }
+    }
+
+    private static List<String> events(JfrReader reader) throws Exception {
+        List<String> events = new ArrayList<>();
+        try (reader) {
+            reader.registerGenericEvent("test.Message");
+            Event event;
+            while ((event = reader.readEvent()) != null) {
+                if (event instanceof GenericEvent) {
+                    GenericEvent message = (GenericEvent) event;
+                    events.add(message.time + " " + message.getString("text") + " " + message.getString("label"));
+                } else {
+                    StackTrace stackTrace = reader.stackTraces.get(event.stackTraceId);
+                    events.add(event.time + " " + event.tid + " " + Arrays.toString(stackTrace.methods));
+                }
+            }
+        }
+        return events;
+    }
+
+    // Events of every size from a few bytes to a few hundred bytes end at all offsets of a window,
+    // constant pools of the second chunk are far from its events
+    private static TestRecording recording() {
+        TestRecording recording = new TestRecording();
+        for (int c = 0; c < 2; c++) {
+            long start = c * 1_000_000_000L;
+            TestRecording.ChunkWriter chunk = recording.chunk(start, 1_000_000_000L, start, 1_000_000_000L).javaTypes();
+            chunk.type(MESSAGE, "test.Message").superType("jdk.jfr.Event")
+                    .field("startTime", LONG)
+                    .field("text", STRING)
+                    .field("label", STRING, true, false);
+            for (int i = 0; i < 300; i++) {
+                long time = start + 1000 + i * 10L;
+                chunk.sample(time, 1 + i % 2, 1 + i % 100, 1);
+                chunk.event(MESSAGE, out -> out.varlong(time + 5).string("x".repeat((int) (time % 257))).varlong(1 + time % 100));
+            }
+            chunk.pool(STRING, 100, out -> {
+                for (int id = 1; id <= 100; id++) {
+                    out.varlong(id).string("label-" + id);
+                }
+            });
+            chunk.pool(STACK_TRACE, 100, out -> {
+                for (int id = 1; id <= 100; id++) {
+                    out.varlong(id).varint(0).varint(id % 5 + 1);
+                    for (int frame = 0; frame <= id % 5; frame++) {
+                        out.varlong(id * 10L + frame).varint(frame).varint(0).raw(1);
+                    }
+                }
+            });
+            chunk.pool(THREAD, 2, out -> out
+                    .varlong(1).string("os-main").varint(11).string("main").varlong(1).varlong(0)
+                    .varlong(2).string("os-worker").varint(12).string("worker").varlong(2).varlong(0));
+            chunk.pool(THREAD_STATE, 1, out -> out.varlong(1).string("STATE_RUNNABLE"));
+            chunk.end();
+        }
+        return recording;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright The async-profiler authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package one.jfr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes synthetic JFR recordings for tests: chunks with metadata, constant pools and events
+ * laid out as JfrReader expects them, with no JVM behind them.
+ */
+public class TestRecording {
+    public static final int LONG = 1;
+    public static final int INT = 2;
+    public static final int FLOAT = 3;
+    public static final int DOUBLE = 4;
+    public static final int BOOLEAN = 5;
+    public static final int STRING = 6;
+    public static final int THREAD = 7;
+    public static final int CLASS = 8;
+    public static final int SYMBOL = 9;
+    public static final int METHOD = 10;
+    public static final int STACK_TRACE = 11;
+    public static final int THREAD_STATE = 12;
+    public static final int EXECUTION_SAMPLE = 20;
+
+    private final ByteArrayOutputStream file = new ByteArrayOutputStream();
+
+    public ChunkWriter chunk(long startNanos, long durationNanos, long startTicks, long ticksPerSec) {
+        return new ChunkWriter(startNanos, durationNanos, startTicks, ticksPerSec);
+    }
+
+    public byte[] toByteArray() {
+        return file.toByteArray();
+    }
+
+    public Path write(Path file) throws IOException {
+        return Files.write(file, toByteArray());
+    }
+
+    public class ChunkWriter {
+        private final long startNanos;
+        private final long durationNanos;
+        private final long startTicks;
+        private final long ticksPerSec;
+        private final Map<Integer, TypeWriter> types = new LinkedHashMap<>();
+        private final Out events = new Out();
+        private final Out pools = new Out();
+        private int poolCount;
+
+        ChunkWriter(long startNanos, long durationNanos, long startTicks, long ticksPerSec) {
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.startTicks = startTicks;
+            this.ticksPerSec = ticksPerSec;
+        }
+
+        // Primitive, constant pool and sample types with the ids above, laid out as async-profiler writes them
+        public ChunkWriter javaTypes() {
+            type(LONG, "long");
+            type(INT, "int");
+            type(FLOAT, "float");
+            type(DOUBLE, "double");
+            type(BOOLEAN, "boolean");
+            type(STRING, "java.lang.String");
+            type(THREAD, "java.lang.Thread")
+                    .field("osName", STRING)
+                    .field("osThreadId", LONG)
+                    .field("javaName", STRING)
+                    .field("javaThreadId", LONG)
+                    .field("group", LONG, true, false);
+            type(CLASS, "java.lang.Class")
+                    .field("classLoader", LONG, true, false)
+                    .field("name", SYMBOL, true, false)
+                    .field("package", LONG, true, false)
+                    .field("modifiers", INT);
+            type(SYMBOL, "jdk.types.Symbol").field("string", STRING);
+            type(METHOD, "jdk.types.Method")
+                    .field("type", CLASS, true, false)
+                    .field("name", SYMBOL, true, false)
+                    .field("descriptor", SYMBOL, true, false)
+                    .field("modifiers", INT)
+                    .field("hidden", BOOLEAN);
+            type(STACK_TRACE, "jdk.types.StackTrace").field("truncated", BOOLEAN);
+            type(THREAD_STATE, "jdk.types.ThreadState").simpleType().field("name", STRING);
+            type(EXECUTION_SAMPLE, "jdk.ExecutionSample").superType("jdk.jfr.Event")
+                    .field("startTime", LONG)
+                    .field("sampledThread", THREAD, true, false)
+                    .field("stackTrace", STACK_TRACE, true, false)
+                    .field("state", THREAD_STATE, true, false);
+            return this;
+        }
+
+        public ChunkWriter sample(long ticks, long thread, long stackTrace, long state) {
+            return event(EXECUTION_SAMPLE, out -> out.varlong(ticks).varint(thread).varint(stackTrace).varint(state));
+        }
+
+        public TypeWriter type(int id, String name) {
+            TypeWriter type = new TypeWriter(id, name);
+            types.put(id, type);
+            return type;
+        }
+
+        public ChunkWriter event(int type, Consumer<Out> fields) {
+            Out body = new Out();
+            body.varint(type);
+            fields.accept(body);
+            events.sized(body);
+            return this;
+        }
+
+        // Entries write their own keys, a pool of count entries follows its type id
+        public ChunkWriter pool(int type, int count, Consumer<Out> entries) {
+            pools.varint(type).varint(count);
+            entries.accept(pools);
+            poolCount++;
+            return this;
+        }
+
+        public TestRecording end() {
+            Out meta = new Out();
+            List<String> strings = new ArrayList<>();
+            Out root = new Out();
+            root.varint(index(strings, "root")).varint(0).varint(types.size());
+            for (TypeWriter type : types.values()) {
+                type.write(root, strings);
+            }
+            meta.varint(0).varlong(startTicks).varlong(0).varlong(1).varint(strings.size());
+            for (String s : strings) {
+                meta.string(s);
+            }
+            meta.bytes(root.toByteArray());
+
+            Out cp = new Out();
+            cp.varint(1).varlong(startTicks).varlong(0).varlong(0).varint(1).varint(poolCount);
+            cp.bytes(pools.toByteArray());
+
+            Out body = new Out();
+            body.bytes(events.toByteArray());
+            long metaOffset = 68 + body.size();
+            body.sized(meta);
+            long cpOffset = 68 + body.size();
+            body.sized(cp);
+
+            ByteBuffer header = ByteBuffer.allocate(68);
+            header.putInt(0x464c5200).putInt(0x20000)
+                    .putLong(68 + body.size()).putLong(cpOffset).putLong(metaOffset)
+                    .putLong(startNanos).putLong(durationNanos).putLong(startTicks).putLong(ticksPerSec)
+                    .putInt(0);
+            file.writeBytes(header.array());
+            file.writeBytes(body.toByteArray());
+            return TestRecording.this;
+        }
+    }
+
+    public static class TypeWriter {
+        private final int id;
+        private final String name;
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+        private final List<Map<String, String>> fields = new ArrayList<>();
+
+        TypeWriter(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public TypeWriter superType(String superType) {
+            attributes.put("superType", superType);
+            return this;
+        }
+
+        public TypeWriter simpleType() {
+            attributes.put("simpleType", "true");
+            return this;
+        }
+
+        public TypeWriter field(String name, int type) {
+            return field(name, type, false, false);
+        }
+
+        public TypeWriter field(String name, int type, boolean constantPool, boolean array) {
+            Map<String, String> field = new LinkedHashMap<>();
+            field.put("name", name);
+            field.put("class", Integer.toString(type));
+            if (constantPool) {
+                field.put("constantPool", "true");
+            }
+            if (array) {
+                field.put("dimension", "1");
+            }
+            fields.add(field);
+            return this;
+        }
+
+        void write(Out out, List<String> strings) {
+            Map<String, String> all = new LinkedHashMap<>();
+            all.put("id", Integer.toString(id));
+            all.put("name", name);
+            all.putAll(attributes);
+            element(out, strings, "class", all);
+            out.varint(fields.size());
+            for (Map<String, String> field : fields) {
+                element(out, strings, "field", field);
+                out.varint(0);
+            }
+        }
+
+        private static void element(Out out, List<String> strings, String name, Map<String, String> attributes) {
+            out.varint(index(strings, name)).varint(attributes.size());
+            attributes.forEach((key, value) -> out.varint(index(strings, key)).varint(index(strings, value)));
+        }
+    }
+
+    private static int index(List<String> strings, String s) {
+        int index = strings.indexOf(s);
+        if (index < 0) {
+            strings.add(s);
+            index = strings.size() - 1;
+        }
+        return index;
+    }
+
+    public static class Out {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        public Out varint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                bytes.write((int) (value & 0x7f | 0x80));
+                value >>>= 7;
+            }
+            bytes.write((int) value);
+            return this;
+        }
+
+        public Out varlong(long value) {
+            return varint(value);
+        }
+
+        public Out raw(int b) {
+            bytes.write(b);
+            return this;
+        }
+
+        public Out f32(float value) {
+            bytes.writeBytes(ByteBuffer.allocate(4).putFloat(value).array());
+            return this;
+        }
+
+        public Out f64(double value) {
+            bytes.writeBytes(ByteBuffer.allocate(8).putDouble(value).array());
+            return this;
+        }
+
+        // UTF-8 encoded string
+        public Out string(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            raw(3).varint(utf8.length);
+            bytes.writeBytes(utf8);
+            return this;
+        }
+
+        // Reference to an entry of the string constant pool
+        public Out stringRef(long id) {
+            return raw(2).varlong(id);
+        }
+
+        public Out bytes(byte[] value) {
+            bytes.writeBytes(value);
+            return this;
+        }
+
+        // Writes the other output prefixed with its size, which includes the size field itself
+        Out sized(Out other) {
+            int size = other.size() + 1;
+            while (varintLength(size) + other.size() != size) {
+                size = varintLength(size) + other.size();
+            }
+            varint(size);
+            return bytes(other.toByteArray());
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+
+        private static int varintLength(long value) {
+            int length = 1;
+            while ((value & ~0x7fL) != 0) {
+                value >>>= 7;
+                length++;
+            }
+            return length;
+        }
+    }
+}